@@ -0,0 +1,132 @@
+package benchmark;
+
+import model.Libreria;
+import model.Libro;
+import persistence.SingletonJSON;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Generatore di cataloghi sintetici per i benchmark: a parità di dimensione e seme produce
+ * sempre gli stessi libri, così le misure di esecuzioni diverse sono confrontabili.
+ * Titoli di tre parole, un autore ogni venti libri circa, una ventina di generi,
+ * anni dal 1900 al 2024; un terzo dei libri è letto e valutato, un terzo in lettura.
+ */
+final class CatalogoSintetico {
+
+    static final long SEME = 42;
+    static final int ANNO_MIN = 1900;
+    static final int ANNO_MAX = 2024;
+    //Criteri diversi usati a rotazione dalle misure, più delle voci della cache della libreria
+    static final int CRITERI = 256;
+
+    static final String[] PAROLE = {
+            "amore", "guerra", "pace", "notte", "giorno", "mare", "montagna", "città", "viaggio", "ritorno",
+            "segreto", "ombra", "luce", "fuoco", "vento", "pioggia", "silenzio", "memoria", "sogno", "tempo",
+            "storia", "casa", "giardino", "fiume", "isola", "deserto", "stella", "luna", "sole", "inverno",
+            "estate", "autunno", "primavera", "lettera", "ultimo", "primo", "perduto", "nascosto", "antico", "nuovo",
+            "cuore", "strada", "porta", "finestra", "specchio", "ponte", "torre", "bosco", "lago", "cielo",
+            "destino", "promessa", "confine", "orizzonte", "labirinto", "cammino", "voce", "nome", "volto", "mondo",
+            "regno", "libro", "mappa", "chiave"
+    };
+
+    static final String[] COGNOMI = {
+            "Rossi", "Russo", "Ferrari", "Esposito", "Bianchi", "Romano", "Colombo", "Ricci", "Marino", "Greco",
+            "Bruno", "Gallo", "Conti", "De Luca", "Mancini", "Costa", "Giordano", "Rizzo", "Lombardi", "Moretti",
+            "Barbieri", "Fontana", "Santoro", "Mariani", "Rinaldi", "Caruso", "Ferrara", "Galli", "Martini", "Leone"
+    };
+
+    static final String[] GENERI = {
+            "Narrativa", "Giallo", "Thriller", "Fantascienza", "Fantasy", "Horror", "Romanzo storico", "Rosa",
+            "Saggio", "Biografia", "Poesia", "Teatro", "Filosofia", "Storia", "Scienza", "Viaggi",
+            "Cucina", "Arte", "Ragazzi", "Fumetti"
+    };
+
+    private CatalogoSintetico() {}
+
+    static List<Libro> genera(int dimensione) {
+        return genera(dimensione, SEME);
+    }
+
+    static List<Libro> genera(int dimensione, long seme) {
+        Random random = new Random(seme);
+        int autori = numeroAutori(dimensione);
+        List<Libro> libri = new ArrayList<>(dimensione);
+        for (int i = 0; i < dimensione; i++) {
+            libri.add(libro(random, i, autori));
+        }
+        return libri;
+    }
+
+    static int numeroAutori(int dimensione) {
+        return Math.max(10, dimensione / 20);
+    }
+
+    //Libro con il codice indicato: i libri creati durante le misure usano codici oltre la dimensione del catalogo
+    static Libro libro(Random random, int codice, int autori) {
+        int autore = random.nextInt(autori);
+        Libro libro = new Libro(titolo(random),
+                COGNOMI[autore % COGNOMI.length] + " " + (autore / COGNOMI.length),
+                isbn(codice),
+                GENERI[random.nextInt(GENERI.length)],
+                ANNO_MIN + random.nextInt(ANNO_MAX - ANNO_MIN + 1));
+        switch (random.nextInt(3)) {
+            case 0 -> {
+                libro.setStatoLettura(Libro.StatoLettura.LETTO);
+                libro.setValutazione(1 + random.nextInt(5));
+            }
+            case 1 -> libro.setStatoLettura(Libro.StatoLettura.IN_LETTURA);
+            default -> { } //resta DA_LEGGERE
+        }
+        return libro;
+    }
+
+    static String titolo(Random random) {
+        return parola(random) + " " + parola(random) + " " + parola(random);
+    }
+
+    static String parola(Random random) {
+        return PAROLE[random.nextInt(PAROLE.length)];
+    }
+
+    //978 seguito dal codice su 10 cifre: ogni codice dà un ISBN diverso
+    static String isbn(int codice) {
+        return String.format("978-%010d", codice);
+    }
+
+    //Criteri ricavati da libri presi a caso nel catalogo, quindi con almeno un risultato
+    static String[] criteri(List<Libro> catalogo, Random random, Function<Libro, String> daLibro) {
+        String[] criteri = new String[CRITERI];
+        for (int i = 0; i < criteri.length; i++) {
+            criteri[i] = daLibro.apply(catalogo.get(random.nextInt(catalogo.size())));
+        }
+        return criteri;
+    }
+
+    //Libreria su un file temporaneo nella cartella indicata, riempita con un'unica transazione.
+    //Il salvataggio in background è rimandato di un'ora perché non si sovrapponga alle misure
+    static Libreria libreria(List<Libro> catalogo, Path cartella) {
+        SingletonJSON.overridePath(cartella.resolve("libreria.json"));
+        Libreria libreria = new Libreria();
+        libreria.setFinestraSalvataggio(Duration.ofHours(1));
+        libreria.inBatch(tx -> catalogo.forEach(tx::aggiungi));
+        return libreria;
+    }
+
+    static void elimina(Path cartella) {
+        try (Stream<Path> percorsi = Files.walk(cartella)) {
+            percorsi.sorted(Comparator.reverseOrder()).forEach(percorso -> percorso.toFile().delete());
+        } catch (IOException e) {
+            throw new RuntimeException("Errore durante la pulizia della cartella temporanea: " + e.getMessage());
+        }
+    }
+}
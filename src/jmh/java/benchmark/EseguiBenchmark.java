@@ -0,0 +1,26 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Avvio dei benchmark dal jar generato con il profilo "benchmark".
+ * Accetta le stesse opzioni del Main di JMH (filtro sui nomi, -p dimensione=1000, -rf json, ...)
+ * e aggiunge sempre il profiler GC, che riporta i byte allocati per operazione (gc.alloc.rate.norm).
+ */
+public final class EseguiBenchmark {
+
+    private EseguiBenchmark() {}
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions opzioni = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(opzioni)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
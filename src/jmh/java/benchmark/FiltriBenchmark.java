@@ -0,0 +1,96 @@
+package benchmark;
+
+import is.strategy.RicercaAvanzata;
+import model.FiltroLibri;
+import model.Libro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtri composti come quelli della ricerca avanzata: genere con intervallo di anni,
+ * libri letti con valutazione minima, testo più filtro e facette su generi e stati.
+ * Come per le ricerche semplici la cache è disattivata e i criteri cambiano ad ogni chiamata.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class FiltriBenchmark {
+
+    private static final List<Libro.StatoLettura> STATI_APERTI =
+            List.of(Libro.StatoLettura.LETTO, Libro.StatoLettura.IN_LETTURA);
+
+    private final FiltroLibri[] generiEAnni = new FiltroLibri[CatalogoSintetico.CRITERI];
+    private final FiltroLibri[] lettiValutati = new FiltroLibri[CatalogoSintetico.CRITERI];
+    private final RicercaAvanzata[] titoliEFiltri = new RicercaAvanzata[CatalogoSintetico.CRITERI];
+    private final RicercaAvanzata[] autoriEStati = new RicercaAvanzata[CatalogoSintetico.CRITERI];
+    private final List<List<String>> coppieGeneri = new ArrayList<>();
+    private int prossimo;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        Random random = new Random(CatalogoSintetico.SEME);
+        for (int i = 0; i < CatalogoSintetico.CRITERI; i++) {
+            String genere = genere(random);
+            int anno = CatalogoSintetico.ANNO_MIN + random.nextInt(CatalogoSintetico.ANNO_MAX - CatalogoSintetico.ANNO_MIN - 30);
+            generiEAnni[i] = FiltroLibri.tutti().conGenere(genere).conAnni(anno, anno + 30);
+            lettiValutati[i] = FiltroLibri.tutti().conStato(Libro.StatoLettura.LETTO)
+                    .conValutazioneMin(1 + random.nextInt(5)).conGenere(genere(random));
+            titoliEFiltri[i] = new RicercaAvanzata(CatalogoSintetico.parola(random), "", "",
+                    FiltroLibri.tutti().conGenere(genere).conAnni(anno, anno + 30));
+            autoriEStati[i] = new RicercaAvanzata("", CatalogoSintetico.COGNOMI[random.nextInt(CatalogoSintetico.COGNOMI.length)], "",
+                    FiltroLibri.tutti().conStato(Libro.StatoLettura.LETTO).conValutazioneMin(3));
+            coppieGeneri.add(List.of(genere, genere(random)));
+        }
+    }
+
+    @Benchmark
+    public List<Libro> genereEAnni(RicercaBenchmark.SenzaCache stato) {
+        return stato.libreria.filtra(generiEAnni[prossimo()]);
+    }
+
+    @Benchmark
+    public List<Libro> lettiConValutazione(RicercaBenchmark.SenzaCache stato) {
+        return stato.libreria.filtra(lettiValutati[prossimo()]);
+    }
+
+    @Benchmark
+    public List<Libro> avanzataTitoloEFiltro(RicercaBenchmark.SenzaCache stato) {
+        return stato.libreria.cercaLib(titoliEFiltri[prossimo()], null, null);
+    }
+
+    @Benchmark
+    public List<Libro> avanzataAutoreEStato(RicercaBenchmark.SenzaCache stato) {
+        return stato.libreria.cercaLib(autoriEStati[prossimo()], null, null);
+    }
+
+    @Benchmark
+    public List<Libro> facette(RicercaBenchmark.SenzaCache stato) {
+        return stato.libreria.filtraPerFacette(coppieGeneri.get(prossimo()), STATI_APERTI);
+    }
+
+    private int prossimo() {
+        return prossimo++ & (CatalogoSintetico.CRITERI - 1);
+    }
+
+    private static String genere(Random random) {
+        return CatalogoSintetico.GENERI[random.nextInt(CatalogoSintetico.GENERI.length)];
+    }
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import model.Libreria;
+import model.Libro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggiunta, rimozione e modifica di un libro in una libreria già piena.
+ * Ogni misura lascia la libreria della stessa dimensione: l'aggiunta è seguita dalla rimozione
+ * dello stesso libro, la modifica cambia solo il titolo di un libro preso a caso.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class MutazioniBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int dimensione;
+
+    private Path cartella;
+    private Libreria libreria;
+    private Random random;
+    private int prossimoCodice;
+
+    @Setup(Level.Trial)
+    public void prepara() throws IOException {
+        cartella = Files.createTempDirectory("benchmark-mutazioni");
+        libreria = CatalogoSintetico.libreria(CatalogoSintetico.genera(dimensione), cartella);
+        random = new Random(CatalogoSintetico.SEME);
+        prossimoCodice = dimensione;
+    }
+
+    @TearDown(Level.Trial)
+    public void chiudi() {
+        libreria.chiudi();
+        CatalogoSintetico.elimina(cartella);
+    }
+
+    @Benchmark
+    public boolean aggiungiERimuovi() {
+        Libro nuovo = CatalogoSintetico.libro(random, prossimoCodice++, CatalogoSintetico.numeroAutori(dimensione));
+        libreria.aggiungiLibro(nuovo);
+        return libreria.rimuoviLibro(nuovo);
+    }
+
+    @Benchmark
+    public boolean modifica() {
+        List<Libro> libri = libreria.getLibri();
+        Libro vecchio = libri.get(random.nextInt(libri.size()));
+        Libro nuovo = new Libro(CatalogoSintetico.titolo(random), vecchio.getAutore(), vecchio.getIsbn(),
+                vecchio.getGenere(), vecchio.getAnnoPubblicazione());
+        return libreria.modificaLibro(vecchio, nuovo);
+    }
+}
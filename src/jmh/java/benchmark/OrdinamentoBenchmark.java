@@ -0,0 +1,125 @@
+package benchmark;
+
+import is.strategy.OrdPerAnno;
+import is.strategy.OrdPerAutore;
+import is.strategy.OrdPerTitolo;
+import is.strategy.OrdStrategy;
+import model.Libreria;
+import model.Libro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Le tre strategie di ordinamento: sulla lista mescolata del catalogo (solo l'ordinamento)
+ * e sulla libreria, che parte ordinata con un altro criterio e pubblica la lista riordinata
+ * (per l'anno la libreria visita l'indice degli anni invece di ordinare).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class OrdinamentoBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int dimensione;
+
+    @Param({"titolo", "autore", "anno"})
+    String ordinamento;
+
+    private List<Libro> mescolati;
+    private OrdStrategy strategia;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        mescolati = new ArrayList<>(CatalogoSintetico.genera(dimensione));
+        Collections.shuffle(mescolati, new Random(CatalogoSintetico.SEME));
+        strategia = strategia(ordinamento);
+    }
+
+    @Benchmark
+    public List<Libro> ordinaLista() {
+        List<Libro> libri = new ArrayList<>(mescolati);
+        strategia.ordina(libri);
+        return libri;
+    }
+
+    @Benchmark
+    public List<Libro> riordinaLibreria(StatoLibreria stato) {
+        stato.libreria.setOrdStrategy(stato.strategia);
+        return stato.libreria.getLibri();
+    }
+
+    /**
+     * Libreria usata solo dal riordino: prima di ogni misura torna ordinata con un altro criterio.
+     * I parametri hanno lo stesso nome di quelli del benchmark, quindi ricevono gli stessi valori.
+     */
+    @State(Scope.Benchmark)
+    public static class StatoLibreria {
+
+        @Param({"1000", "100000", "1000000"})
+        int dimensione;
+
+        @Param({"titolo", "autore", "anno"})
+        String ordinamento;
+
+        private Path cartella;
+        private Libreria libreria;
+        private OrdStrategy strategia;
+        private OrdStrategy precedente;
+
+        @Setup(Level.Trial)
+        public void prepara() throws IOException {
+            strategia = strategia(ordinamento);
+            precedente = switch (ordinamento) {
+                case "titolo" -> new OrdPerAutore();
+                case "autore" -> new OrdPerAnno();
+                default -> new OrdPerTitolo();
+            };
+            cartella = Files.createTempDirectory("benchmark-ordinamento");
+            libreria = CatalogoSintetico.libreria(CatalogoSintetico.genera(dimensione), cartella);
+        }
+
+        //Tempo escluso dalla misura
+        @Setup(Level.Invocation)
+        public void disordina() {
+            libreria.setOrdStrategy(precedente);
+        }
+
+        @TearDown(Level.Trial)
+        public void chiudi() {
+            libreria.chiudi();
+            CatalogoSintetico.elimina(cartella);
+        }
+    }
+
+    static OrdStrategy strategia(String ordinamento) {
+        return switch (ordinamento) {
+            case "titolo" -> new OrdPerTitolo();
+            case "autore" -> new OrdPerAutore();
+            case "anno" -> new OrdPerAnno();
+            default -> throw new IllegalArgumentException("Ordinamento sconosciuto: " + ordinamento);
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package benchmark;
+
+import model.Libro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import persistence.SingletonJSON;
+import persistence.SnapshotBinario;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Salvataggio e caricamento completi del catalogo: JSON con SingletonJSON e, per confronto,
+ * lo snapshot binario. Il caricamento binario crea tutti i libri, come farebbe l'avvio.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class PersistenzaBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int dimensione;
+
+    private Path cartella;
+    private Path binario;
+    private List<Libro> catalogo;
+    private SingletonJSON json;
+
+    @Setup(Level.Trial)
+    public void prepara() throws IOException {
+        catalogo = CatalogoSintetico.genera(dimensione);
+        cartella = Files.createTempDirectory("benchmark-persistenza");
+        //nome diverso da libreria.bin: SingletonJSON non deve scambiarlo per il proprio snapshot
+        binario = cartella.resolve("catalogo.snapshot");
+        SingletonJSON.overridePath(cartella.resolve("libreria.json"));
+        json = SingletonJSON.getInstance();
+        json.setJournal(false);
+        json.setFormatoBinario(false);
+        json.salvaInLibreria(catalogo);
+        SnapshotBinario.scrivi(catalogo, binario);
+    }
+
+    @TearDown(Level.Trial)
+    public void chiudi() {
+        CatalogoSintetico.elimina(cartella);
+    }
+
+    @Benchmark
+    public void salvaJSON() {
+        json.salvaInLibreria(catalogo);
+    }
+
+    @Benchmark
+    public List<Libro> caricaJSON() {
+        return json.leggiDaLibreria();
+    }
+
+    @Benchmark
+    public void salvaBinario() throws IOException {
+        SnapshotBinario.scrivi(catalogo, binario);
+    }
+
+    @Benchmark
+    public void caricaBinario(Blackhole blackhole) throws IOException {
+        SnapshotBinario snapshot = SnapshotBinario.apri(binario);
+        for (int i = 0; i < snapshot.size(); i++) {
+            blackhole.consume(snapshot.get(i));
+        }
+    }
+}
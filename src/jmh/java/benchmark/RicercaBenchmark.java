@@ -0,0 +1,151 @@
+package benchmark;
+
+import is.strategy.RicPerAutore;
+import is.strategy.RicPerAutoreIndicizzata;
+import is.strategy.RicPerISBN;
+import is.strategy.RicPerTitolo;
+import is.strategy.RicPerTitoloIndicizzata;
+import is.strategy.RicStrategy;
+import model.Libreria;
+import model.Libro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Le strategie di ricerca sulla libreria (con gli indici, se la strategia li usa) e sulla sola lista.
+ * La cache delle ricerche è disattivata e i criteri cambiano ad ogni chiamata, così si misura
+ * sempre la ricerca vera; la ricerca ripetuta misura invece il costo di un successo in cache.
+ * La ricerca parallela si prova con -p parallela=true.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class RicercaBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int dimensione;
+
+    @Param({"titolo", "titoloIndicizzata", "autore", "autoreIndicizzata", "isbn"})
+    String ricerca;
+
+    private RicStrategy strategia;
+    private String[] criteri;
+    private int prossimo;
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        strategia = strategia(ricerca);
+        criteri = CatalogoSintetico.criteri(CatalogoSintetico.genera(dimensione),
+                new Random(CatalogoSintetico.SEME), criterio(ricerca));
+    }
+
+    @Benchmark
+    public List<Libro> cerca(SenzaCache stato) {
+        return stato.libreria.cercaLib(strategia, prossimoCriterio(), null);
+    }
+
+    @Benchmark
+    public List<Libro> cercaSenzaIndici(SenzaCache stato) {
+        return strategia.cerca(stato.libreria.getLibri(), prossimoCriterio());
+    }
+
+    @Benchmark
+    public List<Libro> cercaRipetuta(ConCache stato) {
+        return stato.libreria.cercaLib(strategia, criteri[0], null);
+    }
+
+    private String prossimoCriterio() {
+        return criteri[prossimo++ & (CatalogoSintetico.CRITERI - 1)];
+    }
+
+    /**
+     * Libreria con lo stesso catalogo da cui sono presi i criteri: i parametri hanno lo stesso
+     * nome di quelli del benchmark, quindi ricevono gli stessi valori.
+     */
+    public abstract static class StatoLibreria {
+
+        @Param({"1000", "100000", "1000000"})
+        int dimensione;
+
+        @Param({"false"})
+        boolean parallela;
+
+        private Path cartella;
+        Libreria libreria;
+
+        @Setup(Level.Trial)
+        public void prepara() throws IOException {
+            cartella = Files.createTempDirectory("benchmark-ricerca");
+            libreria = CatalogoSintetico.libreria(CatalogoSintetico.genera(dimensione), cartella);
+            libreria.setRicercaParallela(parallela);
+            libreria.setCapacitaCache(capacitaCache());
+        }
+
+        @TearDown(Level.Trial)
+        public void chiudi() {
+            libreria.chiudi();
+            CatalogoSintetico.elimina(cartella);
+        }
+
+        abstract int capacitaCache();
+    }
+
+    @State(Scope.Benchmark)
+    public static class SenzaCache extends StatoLibreria {
+        @Override
+        int capacitaCache() {
+            return 0;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ConCache extends StatoLibreria {
+        @Override
+        int capacitaCache() {
+            return 1;
+        }
+    }
+
+    static RicStrategy strategia(String ricerca) {
+        return switch (ricerca) {
+            case "titolo" -> new RicPerTitolo();
+            case "titoloIndicizzata" -> new RicPerTitoloIndicizzata();
+            case "autore" -> new RicPerAutore();
+            case "autoreIndicizzata" -> new RicPerAutoreIndicizzata();
+            case "isbn" -> new RicPerISBN();
+            default -> throw new IllegalArgumentException("Ricerca sconosciuta: " + ricerca);
+        };
+    }
+
+    //Titolo: le prime due parole di un titolo; autore: il cognome e il numero; ISBN: il codice intero
+    static Function<Libro, String> criterio(String ricerca) {
+        return switch (ricerca) {
+            case "titolo", "titoloIndicizzata" -> libro -> libro.getTitolo().substring(0, libro.getTitolo().lastIndexOf(' '));
+            case "autore", "autoreIndicizzata" -> Libro::getAutore;
+            case "isbn" -> Libro::getIsbn;
+            default -> throw new IllegalArgumentException("Ricerca sconosciuta: " + ricerca);
+        };
+    }
+}
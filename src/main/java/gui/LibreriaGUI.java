@@ -1,21 +1,27 @@
 package gui;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import model.Libreria;
 import model.Libro;
+import model.StatisticheLibreria;
+import observer.Modifica;
 import observer.Observer;
+import persistence.ImportatoreCatalogo;
+import persistence.SingletonJSON;
 import gui.dialogs.DialogManager;
 import is.strategy.*;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -25,6 +31,7 @@ public class LibreriaGUI extends Application implements Observer {
 
     private Libreria libreria;
     private ListView<Libro> listaLibri;
+    private final ObservableList<Libro> catalogo = FXCollections.observableArrayList(); // copia della lista della libreria, aggiornata dagli eventi
     private Stage primaryStage;
     private DialogManager dialogManager;
     private Label statusBar;
@@ -32,18 +39,57 @@ public class LibreriaGUI extends Application implements Observer {
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
+        SingletonJSON.getInstance().setJournal(true); // ogni modifica viene accodata al giornale invece di riscrivere il file
+        SingletonJSON.getInstance().setFormatoBinario(true); // snapshot anche in binario: avvio più veloce, il JSON resta aggiornato
         this.libreria = new Libreria();
+        libreria.setRicercaParallela(true); // sui cataloghi grandi le ricerche usano tutti i core
         this.dialogManager = new DialogManager(primaryStage, libreria);
+        libreria.setGestoreErroriSalvataggio(ex -> Platform.runLater(() ->
+                dialogManager.mostraErrore("Errore", "Impossibile salvare: " + ex.getMessage())));
 
         setupUI();
         setupData();
     }
 
+    @Override
+    public void stop() {
+        // Scrive le ultime modifiche ancora in coda e chiude il giornale
+        libreria.chiudi();
+        SingletonJSON.getInstance().chiudi();
+    }
+
+    //Importazione di un catalogo CSV o JSON in un thread separato: la finestra resta utilizzabile
+    //e la barra di stato mostra l'avanzamento dopo ogni lotto
+    private void importaCatalogo() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Importa catalogo");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Cataloghi (*.csv, *.json)", "*.csv", "*.json"),
+                new FileChooser.ExtensionFilter("Tutti i file", "*.*"));
+        File file = chooser.showOpenDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        ImportatoreCatalogo importatore = new ImportatoreCatalogo(libreria);
+        importatore.setAvanzamento((lette, importati, scartati) -> Platform.runLater(() ->
+                statusBar.setText(String.format("Importazione: %d righe lette, %d libri importati, %d scartati", lette, importati, scartati))));
+        Thread thread = new Thread(() -> {
+            try {
+                ImportatoreCatalogo.Esito esito = importatore.importa(file.toPath());
+                Platform.runLater(() -> statusBar.setText(String.format("Importati %d libri su %d righe (%d scartate)",
+                        esito.importati(), esito.righeLette(), esito.scartate().size())));
+            } catch (RuntimeException ex) {
+                Platform.runLater(() -> dialogManager.mostraErrore("Errore", "Impossibile importare: " + ex.getMessage()));
+            }
+        }, "importazione-catalogo");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     private void setupUI() {
         // Inizializzazione componenti
         listaLibri = new ListView<>();
-        ObservableList<Libro> items = FXCollections.observableArrayList();
-        listaLibri.setItems(items);
+        listaLibri.setItems(catalogo);
 
         // Layout principale
         BorderPane root = new BorderPane();
@@ -55,6 +101,7 @@ public class LibreriaGUI extends Application implements Observer {
 
         // Configurazione scena
         Scene scene = new Scene(root, 900, 700);
+        scene.getStylesheets().add(getClass().getResource("/gui/libreria.css").toExternalForm());
         primaryStage.setTitle("Gestore Libreria Personale");
         primaryStage.setScene(scene);
         primaryStage.show();
@@ -72,7 +119,8 @@ public class LibreriaGUI extends Application implements Observer {
         Menu fileMenu = new Menu("File");
         MenuItem salvaItem = new MenuItem("Salva");
         MenuItem caricaItem = new MenuItem("Carica");
-        fileMenu.getItems().addAll(salvaItem, caricaItem);
+        MenuItem importaItem = new MenuItem("Importa catalogo...");
+        fileMenu.getItems().addAll(salvaItem, caricaItem, importaItem);
 
         // Menu Ordina
         Menu ordinaMenu = new Menu("Ordina");
@@ -102,22 +150,21 @@ public class LibreriaGUI extends Application implements Observer {
             }
         });
 
+        importaItem.setOnAction(e -> importaCatalogo());
+
         // IMPLEMENTAZIONE PATTERN STRATEGY
         ordinaTitoloItem.setOnAction(e -> {
-            libreria.setOrdStrategy(new OrdPerTitolo());
-            libreria.ordinaLib();
+            libreria.setOrdStrategy(new OrdPerTitolo()); // riordina e notifica gli observer
             statusBar.setText("Libri ordinati per titolo");
         });
 
         ordinaAnnoItem.setOnAction(e -> {
-            libreria.setOrdStrategy(new OrdPerAnno());
-            libreria.ordinaLib();
+            libreria.setOrdStrategy(new OrdPerAnno()); // riordina e notifica gli observer
             statusBar.setText("Libri ordinati per anno");
         });
 
         ordinaAutoreItem.setOnAction(e -> {
-            libreria.setOrdStrategy(new OrdPerAutore());
-            libreria.ordinaLib();
+            libreria.setOrdStrategy(new OrdPerAutore()); // riordina e notifica gli observer
             statusBar.setText("Libri ordinati per autore");
         });
 
@@ -178,64 +225,8 @@ public class LibreriaGUI extends Application implements Observer {
     }
 
     private void setupListView() {
-        listaLibri.setCellFactory(lv -> new ListCell<Libro>() {
-            @Override
-            protected void updateItem(Libro libro, boolean empty) {
-                super.updateItem(libro, empty);
-                if (empty || libro == null) {
-                    setText(null);
-                    setGraphic(null);
-                } else {
-                    setGraphic(createBookCell(libro));
-                }
-            }
-        });
-    }
-
-    private VBox createBookCell(Libro libro) {
-        VBox cellContainer = new VBox(5);
-        cellContainer.setPadding(new Insets(5));
-
-        // Prima riga: Titolo e Valutazione
-        HBox primaRiga = new HBox(10);
-        Label titolo = new Label(libro.getTitolo());
-        titolo.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
-
-        Label valutazione = new Label();
-        if (libro.getStatoLettura() == Libro.StatoLettura.LETTO && libro.getValutazione() > 0) {
-            valutazione.setText("★".repeat(libro.getValutazione()));
-            valutazione.setStyle("-fx-text-fill: gold; -fx-font-size: 12px;");
-        }
-
-        primaRiga.getChildren().addAll(titolo, valutazione);
-
-        // Seconda riga: Autore e Anno
-        HBox secondaRiga = new HBox(10);
-        Label autore = new Label("di " + libro.getAutore());
-        autore.setStyle("-fx-text-fill: #666; -fx-font-style: italic;");
-        Label anno = new Label("(" + libro.getAnnoPubblicazione() + ")");
-        anno.setStyle("-fx-text-fill: #666;");
-        Label ISBN = new Label("ISBN: " + libro.getIsbn());
-        ISBN.setStyle("-fx-text-fill: #666;");
-        secondaRiga.getChildren().addAll(autore, anno, ISBN);
-
-        // Terza riga: Genere e Stato
-        HBox terzaRiga = new HBox(10);
-        Label genere = new Label(libro.getGenere());
-        genere.setStyle("-fx-background-color: #e3f2fd; -fx-padding: 2 6 2 6; -fx-background-radius: 10;");
-
-        Label stato = new Label(libro.getStatoLettura().toString());
-        String statoStyle = switch (libro.getStatoLettura()) {
-            case LETTO -> "-fx-background-color: #c8e6c9; -fx-text-fill: #2e7d32;";
-            case IN_LETTURA -> "-fx-background-color: #fff3e0; -fx-text-fill: #ef6c00;";
-            case DA_LEGGERE -> "-fx-background-color: #ffcdd2; -fx-text-fill: #c62828;";
-        };
-        stato.setStyle(statoStyle + " -fx-padding: 2 6 2 6; -fx-background-radius: 10; -fx-font-size: 10px;");
-
-        terzaRiga.getChildren().addAll(genere, stato);
-
-        cellContainer.getChildren().addAll(primaRiga, secondaRiga, terzaRiga);
-        return cellContainer;
+        // Celle riutilizzabili: i nodi si creano una volta sola, updateItem aggiorna solo i testi
+        listaLibri.setCellFactory(lv -> new LibroCell());
     }
 
     // Metodi di utilità
@@ -243,26 +234,24 @@ public class LibreriaGUI extends Application implements Observer {
         return listaLibri.getSelectionModel().getSelectedItem();
     }
 
+    // I risultati della ricerca vanno in una lista a parte, così il catalogo resta allineato agli eventi
     private void mostraRisultatiRicerca(List<Libro> risultati) {
-        listaLibri.getItems().clear();
-        listaLibri.getItems().addAll(risultati);
+        listaLibri.setItems(FXCollections.observableArrayList(risultati));
         updateStatusBar();
         statusBar.setText("Trovati " + risultati.size() + " libri");
     }
 
     private void updateListView() {
         if (listaLibri != null) {
-            listaLibri.getItems().clear();
-            listaLibri.getItems().addAll(libreria.getLibri());
+            listaLibri.setItems(catalogo);
             updateStatusBar();
         }
     }
 
     private void updateStatusBar() {
-        int totaleLibri = libreria.getLibri().size();
-        long libriLetti = libreria.getLibri().stream()
-                .filter(l -> l.getStatoLettura() == Libro.StatoLettura.LETTO)
-                .count();
+        StatisticheLibreria statistiche = libreria.getStatistiche();
+        int totaleLibri = statistiche.getTotale();
+        int libriLetti = statistiche.getLetti();
 
         statusBar.setText(String.format("Totale libri: %d | Libri letti: %d", totaleLibri, libriLetti));
     }
@@ -270,9 +259,31 @@ public class LibreriaGUI extends Application implements Observer {
     // PATTERN OBSERVER
     @Override
     public void update(List<Libro> libri) {
+        // la libreria pubblica versioni immutabili della lista, quindi si può usare direttamente nel runLater
         javafx.application.Platform.runLater(() -> {
-            listaLibri.getItems().setAll(libri);
-            updateStatusBar();
+            catalogo.setAll(libri);
+            updateListView();
+        });
+    }
+
+    // Applica la singola modifica al catalogo invece di ricostruirlo
+    @Override
+    public void aggiorna(Modifica modifica, List<Libro> libri) {
+        if (modifica.tipo() == Modifica.Tipo.RESET) {
+            update(libri);
+            return;
+        }
+        javafx.application.Platform.runLater(() -> {
+            switch (modifica.tipo()) {
+                case AGGIUNTO -> catalogo.add(modifica.indice(), modifica.libro());
+                case RIMOSSO -> catalogo.remove(modifica.indice());
+                case AGGIORNATO -> catalogo.set(modifica.indice(), modifica.libro());
+                case SPOSTATO -> {
+                    catalogo.remove(modifica.daIndice());
+                    catalogo.add(modifica.indice(), modifica.libro());
+                }
+            }
+            updateListView(); // come prima, una modifica riporta alla visualizzazione completa
         });
     }
 
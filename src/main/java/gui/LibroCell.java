@@ -0,0 +1,91 @@
+package gui;
+
+import javafx.geometry.Insets;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import model.Libro;
+
+import java.util.List;
+
+/**
+ * Cella della lista dei libri.
+ * I nodi vengono creati una sola volta per cella; quando la ListView ricicla la cella
+ * durante lo scorrimento, updateItem cambia solo i testi e le classi di stile.
+ * Gli stili sono nel foglio libreria.css.
+ */
+public final class LibroCell extends ListCell<Libro> {
+
+    private static final String[] STELLE = {"", "★", "★★", "★★★", "★★★★", "★★★★★"};
+    private static final List<String> CLASSI_STATO = List.of("stato-letto", "stato-da-leggere", "stato-in-lettura");
+
+    private final VBox contenitore = new VBox(5);
+    private final Label titolo = new Label();
+    private final Label valutazione = new Label();
+    private final Label autore = new Label();
+    private final Label anno = new Label();
+    private final Label isbn = new Label();
+    private final Label genere = new Label();
+    private final Label stato = new Label();
+
+    public LibroCell() {
+        contenitore.setPadding(new Insets(5));
+
+        // Prima riga: Titolo e Valutazione
+        titolo.getStyleClass().add("libro-titolo");
+        valutazione.getStyleClass().add("libro-valutazione");
+        HBox primaRiga = new HBox(10, titolo, valutazione);
+
+        // Seconda riga: Autore, Anno e ISBN
+        autore.getStyleClass().add("libro-autore");
+        anno.getStyleClass().add("libro-dettaglio");
+        isbn.getStyleClass().add("libro-dettaglio");
+        HBox secondaRiga = new HBox(10, autore, anno, isbn);
+
+        // Terza riga: Genere e Stato
+        genere.getStyleClass().add("libro-genere");
+        stato.getStyleClass().add("libro-stato");
+        HBox terzaRiga = new HBox(10, genere, stato);
+
+        contenitore.getChildren().addAll(primaRiga, secondaRiga, terzaRiga);
+        setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+    }
+
+    @Override
+    protected void updateItem(Libro libro, boolean empty) {
+        super.updateItem(libro, empty);
+        if (empty || libro == null) {
+            setGraphic(null);
+            return;
+        }
+
+        titolo.setText(libro.getTitolo());
+        boolean conValutazione = libro.getStatoLettura() == Libro.StatoLettura.LETTO && libro.getValutazione() > 0;
+        valutazione.setText(conValutazione ? STELLE[Math.min(libro.getValutazione(), 5)] : "");
+
+        autore.setText("di " + libro.getAutore());
+        anno.setText("(" + libro.getAnnoPubblicazione() + ")");
+        isbn.setText("ISBN: " + libro.getIsbn());
+        genere.setText(libro.getGenere());
+
+        Libro.StatoLettura statoLettura = libro.getStatoLettura();
+        stato.setText(statoLettura == null ? "" : statoLettura.toString());
+        stato.getStyleClass().removeAll(CLASSI_STATO);
+        if (statoLettura != null) {
+            stato.getStyleClass().add(classeStato(statoLettura));
+        }
+
+        setGraphic(contenitore);
+    }
+
+    //Lo switch senza default non compila se viene aggiunto uno stato senza classe di stile
+    private static String classeStato(Libro.StatoLettura statoLettura) {
+        return switch (statoLettura) {
+            case LETTO -> "stato-letto";
+            case DA_LEGGERE -> "stato-da-leggere";
+            case IN_LETTURA -> "stato-in-lettura";
+        };
+    }
+}
@@ -1,15 +1,26 @@
 package gui.dialogs;
 
+import gui.LibroCell;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import model.FiltroLibri;
 import model.Libro;
 import model.Libreria;
+import model.RicercaParallela;
+import model.StatisticheLibreria;
 import is.strategy.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Dialog specializzato per la ricerca dei libri
@@ -28,6 +39,48 @@ public class CercaDialog extends Dialog<List<Libro>> {
     private Spinner<Integer> cercaValutazioneMin;
     private ComboBox<String> tipoCercaCombo;
 
+    // Ricerca durante la digitazione: si parte dopo una breve pausa, in background,
+    // annullando la ricerca precedente se è ancora in corso
+    private static final Duration ATTESA_DIGITAZIONE = Duration.millis(250);
+    private final PauseTransition attesa = new PauseTransition(ATTESA_DIGITAZIONE);
+    private final ExecutorService esecutore = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ricerca-live");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ListView<Libro> anteprima;
+    private Label esitoAnteprima;
+    private Future<?> ricercaInCorso;
+    private RicercaParallela.Annullamento annullamento;
+    private long generazione; //numero dell'ultima ricerca avviata: i risultati delle precedenti si scartano
+
+    // Ultimi risultati mostrati, per restringerli quando il testo cercato si allunga (solo thread FX)
+    private Interrogazione ultimaInterrogazione;
+    private List<Libro> ultimiRisultati;
+    private long ultimaVersione;
+
+    //Criteri letti dai controlli in un certo momento
+    private record Interrogazione(String tipo, String titolo, String autore, String isbn, FiltroLibri filtro) {
+
+        boolean vuota() {
+            return switch (tipo) {
+                case "Ricerca per Titolo" -> titolo.isEmpty();
+                case "Ricerca per Autore" -> autore.isEmpty();
+                case "Ricerca per ISBN" -> isbn.isEmpty();
+                default -> false;
+            };
+        }
+
+        //true se ogni libro che soddisfa questa interrogazione soddisfa anche la precedente:
+        //stessi criteri, salvo titolo e autore che contengono quelli di prima ("har" -> "harr")
+        boolean restringe(Interrogazione precedente) {
+            return precedente != null && tipo.equals(precedente.tipo) && isbn.equals(precedente.isbn)
+                    && filtro.equals(precedente.filtro)
+                    && titolo.toLowerCase().contains(precedente.titolo.toLowerCase())
+                    && autore.toLowerCase().contains(precedente.autore.toLowerCase());
+        }
+    }
+
     public CercaDialog(Stage owner, Libreria libreria) {
         this.libreria = libreria;
 
@@ -38,6 +91,7 @@ public class CercaDialog extends Dialog<List<Libro>> {
         createContent();
         setupButtons();
         setupResultConverter();
+        setupRicercaLive();
     }
 
     private void createContent() {
@@ -64,13 +118,8 @@ public class CercaDialog extends Dialog<List<Libro>> {
         // ComboBox genere
         cercaGenere = new ComboBox<>();
         cercaGenere.getItems().add("Tutti i generi");
-        cercaGenere.getItems().addAll(
-                libreria.getLibri().stream()
-                        .map(Libro::getGenere)
-                        .distinct()
-                        .sorted(String.CASE_INSENSITIVE_ORDER)
-                        .collect(Collectors.toList())
-        );
+        StatisticheLibreria statistiche = libreria.getStatistiche();
+        cercaGenere.getItems().addAll(statistiche.getGeneri());
         cercaGenere.setValue("Tutti i generi");
 
         // ComboBox stato
@@ -80,12 +129,8 @@ public class CercaDialog extends Dialog<List<Libro>> {
         cercaStato.setPromptText("Tutti gli stati");
 
         // Spinner per range di anni
-        int annoMin = libreria.getLibri().stream()
-                .mapToInt(Libro::getAnnoPubblicazione)
-                .min().orElse(1900);
-        int annoMax = libreria.getLibri().stream()
-                .mapToInt(Libro::getAnnoPubblicazione)
-                .max().orElse(2024);
+        int annoMin = statistiche.getAnnoMin().orElse(1900);
+        int annoMax = statistiche.getAnnoMax().orElse(2024);
 
         cercaAnnoMin = new Spinner<>(annoMin, annoMax, annoMin);
         cercaAnnoMax = new Spinner<>(annoMin, annoMax, annoMax);
@@ -133,7 +178,14 @@ public class CercaDialog extends Dialog<List<Libro>> {
 
         updateFieldsVisibility(tipoCercaCombo.getValue());
 
-        getDialogPane().setContent(grid);
+        // Anteprima dei risultati aggiornata durante la digitazione
+        esitoAnteprima = new Label();
+        anteprima = new ListView<>();
+        anteprima.setCellFactory(lv -> new LibroCell());
+        anteprima.setPrefHeight(250);
+
+        getDialogPane().setContent(new VBox(10, grid, esitoAnteprima, anteprima));
+        getDialogPane().getStylesheets().add(getClass().getResource("/gui/libreria.css").toExternalForm());
     }
 
     private void updateFieldsVisibility(String tipoRicerca) {
@@ -189,16 +241,9 @@ public class CercaDialog extends Dialog<List<Libro>> {
         cercaISBN.clear();
         cercaGenere.setValue("Tutti i generi");
         cercaStato.setValue(null);
-        cercaAnnoMin.getValueFactory().setValue(
-                libreria.getLibri().stream()
-                        .mapToInt(Libro::getAnnoPubblicazione)
-                        .min().orElse(1900)
-        );
-        cercaAnnoMax.getValueFactory().setValue(
-                libreria.getLibri().stream()
-                        .mapToInt(Libro::getAnnoPubblicazione)
-                        .max().orElse(2030)
-        );
+        StatisticheLibreria statistiche = libreria.getStatistiche();
+        cercaAnnoMin.getValueFactory().setValue(statistiche.getAnnoMin().orElse(1900));
+        cercaAnnoMax.getValueFactory().setValue(statistiche.getAnnoMax().orElse(2030));
         cercaValutazioneMin.getValueFactory().setValue(0);
         tipoCercaCombo.setValue("Ricerca Avanzata");
     }
@@ -212,74 +257,132 @@ public class CercaDialog extends Dialog<List<Libro>> {
         });
     }
 
-    private List<Libro> eseguiRicerca() {
-        String tipoRicerca = tipoCercaCombo.getValue();
-
-        // IMPLEMENTAZIONE DEL PATTERN STRATEGY
-        switch (tipoRicerca) {
-            case "Ricerca per Titolo":
-                if (!cercaTitolo.getText().trim().isEmpty()) {
-                    libreria.setRicStrategy(new RicPerTitolo());
-                    return libreria.cercaLib(cercaTitolo.getText().trim());
-                }
-                break;
-
-            case "Ricerca per Autore":
-                if (!cercaAutore.getText().trim().isEmpty()) {
-                    libreria.setRicStrategy(new RicPerAutore());
-                    return libreria.cercaLib(cercaAutore.getText().trim());
-                }
-                break;
-
-            case "Ricerca per ISBN":
-                if (!cercaISBN.getText().trim().isEmpty()) {
-                    libreria.setRicStrategy(new RicPerISBN());
-                    return libreria.cercaLib(cercaISBN.getText().trim());
-                }
-                break;
-
-            case "Ricerca Avanzata":
-                return eseguiRicercaAvanzata();
+    /* ───────────────────  RICERCA DURANTE LA DIGITAZIONE  ─────────────────── */
+
+    private void setupRicercaLive() {
+        attesa.setOnFinished(e -> avviaRicercaLive());
+        for (TextField campo : List.of(cercaTitolo, cercaAutore, cercaISBN)) {
+            campo.textProperty().addListener((obs, vecchio, nuovo) -> programmaRicercaLive());
         }
+        tipoCercaCombo.valueProperty().addListener((obs, vecchio, nuovo) -> programmaRicercaLive());
+        cercaGenere.valueProperty().addListener((obs, vecchio, nuovo) -> programmaRicercaLive());
+        cercaStato.valueProperty().addListener((obs, vecchio, nuovo) -> programmaRicercaLive());
+        cercaAnnoMin.valueProperty().addListener((obs, vecchio, nuovo) -> programmaRicercaLive());
+        cercaAnnoMax.valueProperty().addListener((obs, vecchio, nuovo) -> programmaRicercaLive());
+        cercaValutazioneMin.valueProperty().addListener((obs, vecchio, nuovo) -> programmaRicercaLive());
+        setOnHidden(e -> {
+            attesa.stop();
+            annullaRicercaLive();
+            esecutore.shutdownNow();
+        });
+    }
 
-        // Se non ci sono criteri, restituisce tutti i libri
-        return libreria.getLibri();
+    // Ogni modifica riparte l'attesa: la ricerca parte solo quando l'utente smette di scrivere
+    private void programmaRicercaLive() {
+        annullaRicercaLive(); //i risultati in arrivo sarebbero già vecchi
+        attesa.playFromStart();
+    }
+
+    private void annullaRicercaLive() {
+        if (annullamento != null) {
+            annullamento.annulla();
+        }
+        if (ricercaInCorso != null) {
+            ricercaInCorso.cancel(false);
+        }
     }
 
-    private List<Libro> eseguiRicercaAvanzata() {
-        // Per la ricerca avanzata, usiamo il filtering manuale
+    private void avviaRicercaLive() {
+        Interrogazione interrogazione = interrogazione();
+        long numero = ++generazione;
+        annullaRicercaLive();
+        if (interrogazione.vuota()) {
+            anteprima.getItems().clear();
+            esitoAnteprima.setText("");
+            ultimaInterrogazione = null;
+            ultimiRisultati = null;
+            return;
+        }
 
-        return libreria.getLibri().stream()
-                .filter(libro -> {
-                    // Filtro per titolo
-                    boolean matchTitolo = cercaTitolo.getText().isEmpty() ||
-                            libro.getTitolo().toLowerCase().contains(cercaTitolo.getText().toLowerCase());
+        RicStrategy strategia = strategia(interrogazione);
+        String criterio = criterio(interrogazione);
+        long versione = libreria.getVersione();
+        // se il testo si è solo allungato e la libreria non è cambiata basta filtrare i risultati precedenti
+        List<Libro> precedenti = ultimiRisultati != null && ultimaVersione == versione
+                && interrogazione.restringe(ultimaInterrogazione) ? ultimiRisultati : null;
+        RicercaParallela.Annullamento questo = new RicercaParallela.Annullamento();
+        annullamento = questo;
+        ricercaInCorso = esecutore.submit(() -> {
+            try {
+                List<Libro> risultati = precedenti != null ? strategia.cerca(precedenti, criterio)
+                        : libreria.cercaLib(strategia, criterio, questo);
+                // un solo passaggio al thread FX con tutti i risultati
+                Platform.runLater(() -> mostraAnteprima(numero, interrogazione, versione, risultati));
+            } catch (CancellationException e) {
+                // superata da una digitazione successiva
+            }
+        });
+    }
 
-                    // Filtro per autore
-                    boolean matchAutore = cercaAutore.getText().isEmpty() ||
-                            libro.getAutore().toLowerCase().contains(cercaAutore.getText().toLowerCase());
+    private void mostraAnteprima(long numero, Interrogazione interrogazione, long versione, List<Libro> risultati) {
+        if (numero != generazione) {
+            return; //nel frattempo è partita un'altra ricerca
+        }
+        anteprima.getItems().setAll(risultati);
+        esitoAnteprima.setText("Trovati " + risultati.size() + " libri");
+        ultimaInterrogazione = interrogazione;
+        ultimiRisultati = risultati;
+        ultimaVersione = versione;
+    }
 
-                    // Filtro per ISBN
-                    boolean matchISBN = cercaISBN.getText().isEmpty() ||
-                            libro.getIsbn().equals(cercaISBN.getText());
+    private Interrogazione interrogazione() {
+        return new Interrogazione(tipoCercaCombo.getValue(), cercaTitolo.getText().trim(),
+                cercaAutore.getText().trim(), cercaISBN.getText().trim(), filtro());
+    }
 
-                    // Filtro per genere
-                    boolean matchGenere = cercaGenere.getValue().equals("Tutti i generi") ||
-                            libro.getGenere().equals(cercaGenere.getValue());
+    // IMPLEMENTAZIONE DEL PATTERN STRATEGY: la stessa scelta serve alla ricerca live e al pulsante Cerca
+    private static RicStrategy strategia(Interrogazione interrogazione) {
+        return switch (interrogazione.tipo()) {
+            case "Ricerca per Titolo" -> new RicPerTitoloIndicizzata();
+            case "Ricerca per Autore" -> new RicPerAutoreIndicizzata();
+            case "Ricerca per ISBN" -> new RicPerISBN();
+            default -> new RicercaAvanzata(interrogazione.titolo(), interrogazione.autore(),
+                    interrogazione.isbn(), interrogazione.filtro());
+        };
+    }
 
-                    // Filtro per stato
-                    boolean matchStato = cercaStato.getValue() == null ||
-                            libro.getStatoLettura() == cercaStato.getValue();
+    private static String criterio(Interrogazione interrogazione) {
+        return switch (interrogazione.tipo()) {
+            case "Ricerca per Titolo" -> interrogazione.titolo();
+            case "Ricerca per Autore" -> interrogazione.autore();
+            case "Ricerca per ISBN" -> interrogazione.isbn();
+            default -> null; //la ricerca avanzata ha già tutti i criteri
+        };
+    }
 
-                    // Filtro per anno
-                    boolean matchAnno = libro.getAnnoPubblicazione() >= cercaAnnoMin.getValue() &&
-                            libro.getAnnoPubblicazione() <= cercaAnnoMax.getValue();
+    private List<Libro> eseguiRicerca() {
+        Interrogazione interrogazione = interrogazione();
 
-                    // Filtro per valutazione
-                    boolean matchValutazione = libro.getValutazione() >= cercaValutazioneMin.getValue();
+        // Se non ci sono criteri, restituisce tutti i libri
+        if (interrogazione.vuota()) {
+            return libreria.getLibri();
+        }
+        libreria.setRicStrategy(strategia(interrogazione));
+        return libreria.cercaLib(criterio(interrogazione));
+    }
 
-                    return matchTitolo && matchAutore && matchISBN && matchGenere && matchStato && matchAnno && matchValutazione;
-                })
-                .collect(Collectors.toList());
+    // Per la ricerca avanzata i criteri vengono letti dai controlli una volta sola; la strategia
+    // sceglie l'indice da cui partire e l'ordine in cui valutare le altre condizioni
+    private FiltroLibri filtro() {
+        FiltroLibri filtro = FiltroLibri.tutti()
+                .conAnni(cercaAnnoMin.getValue(), cercaAnnoMax.getValue())
+                .conValutazioneMin(cercaValutazioneMin.getValue());
+        if (!"Tutti i generi".equals(cercaGenere.getValue())) {
+            filtro = filtro.conGenere(cercaGenere.getValue());
+        }
+        if (cercaStato.getValue() != null) {
+            filtro = filtro.conStato(cercaStato.getValue());
+        }
+        return filtro;
     }
 }
\ No newline at end of file
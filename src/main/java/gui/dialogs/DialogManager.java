@@ -90,13 +90,13 @@ public class DialogManager {
     }
 
     /**
-     * Mostra il dialog per la ricerca dei libri
+     * Mostra il dialog per la ricerca dei libri (null se annullato: la vista resta com'è)
      */
     public List<Libro> mostraDialogCerca() {
         CercaDialog dialog = new CercaDialog(parentStage, libreria);
         Optional<List<Libro>> result = dialog.showAndWait();
 
-        return result.orElse(libreria.getLibri());
+        return result.orElse(null);
     }
 
     /**
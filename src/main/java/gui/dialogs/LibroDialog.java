@@ -180,8 +180,9 @@ public class LibroDialog extends Dialog<Libro> {
         String isbn = isbnField.getText().trim();
         if(!ISBNvalido.isISBN(isbn)){
             mostraErrore("ISBN non plausibile. Deve avere:\n"
-                    + "• 10 cifre  oppure\n"
-                    + "• 13 cifre che iniziano con 978/979 seguite da - , ad es. 978-1234567890");
+                    + "• 10 cifre (l'ultima può essere X)  oppure\n"
+                    + "• 13 cifre che iniziano con 978/979, ad es. 978-1234567890\n"
+                    + "I trattini sono facoltativi");
             isbnField.requestFocus();
             return false;
         }
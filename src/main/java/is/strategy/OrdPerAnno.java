@@ -1,14 +1,24 @@
 package is.strategy;
 
 import model.Libro;
+import util.ISBN;
+
 import java.util.Comparator;
 import java.util.List;
 
 public class OrdPerAnno implements OrdStrategy {
     //Ordinamento libri per anno
 
+    private static final Comparator<Libro> PER_ANNO = Comparator.comparingInt(Libro::getAnnoPubblicazione)
+            .thenComparing(Libro::getIsbn, ISBN.ORDINE);
+
     @Override
     public void ordina(List<Libro> libri) {
-        libri.sort(Comparator.comparingInt(Libro::getAnnoPubblicazione));
+        libri.sort(PER_ANNO);
+    }
+
+    @Override
+    public Comparator<Libro> comparatore() {
+        return PER_ANNO;
     }
 }
@@ -1,13 +1,25 @@
 package is.strategy;
 
 import model.Libro;
+import util.ISBN;
+
+import java.util.Comparator;
 import java.util.List;
 
 public class OrdPerAutore implements OrdStrategy {
     //Ordinamento libri per Autore
 
+    //confronta le chiavi di collazione già calcolate e memorizzate nel libro
+    private static final Comparator<Libro> PER_AUTORE = Comparator.comparing(Libro::getChiaveAutore)
+            .thenComparing(Libro::getIsbn, ISBN.ORDINE);
+
     @Override
     public void ordina(List<Libro> libri) {
-        libri.sort((l1, l2) -> l1.getAutore().compareToIgnoreCase(l2.getAutore()));
+        libri.sort(PER_AUTORE);
+    }
+
+    @Override
+    public Comparator<Libro> comparatore() {
+        return PER_AUTORE;
     }
 }
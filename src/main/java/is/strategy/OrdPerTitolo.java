@@ -1,14 +1,26 @@
 package is.strategy;
 
 import model.Libro;
+import util.ISBN;
+
+import java.util.Comparator;
 import java.util.List;
 
 public class OrdPerTitolo implements OrdStrategy {
     //Ordinamento libri per titolo
 
+    //confronta le chiavi di collazione già calcolate e memorizzate nel libro
+    private static final Comparator<Libro> PER_TITOLO = Comparator.comparing(Libro::getChiaveTitolo)
+            .thenComparing(Libro::getIsbn, ISBN.ORDINE);
+
     @Override
     public void ordina(List<Libro> libri) {
-        libri.sort((l1, l2) -> l1.getTitolo().compareToIgnoreCase(l2.getTitolo()));
+        libri.sort(PER_TITOLO);
 
     }
+
+    @Override
+    public Comparator<Libro> comparatore() {
+        return PER_TITOLO;
+    }
 }
@@ -1,10 +1,58 @@
 package is.strategy;
 
 import model.Libro;
+
+import java.util.Comparator;
 import java.util.List;
 
 public interface OrdStrategy {
     //Pattern Strategy per ordinamento
 
     public void ordina(List<Libro> libri);
+
+    //Criterio di ordinamento, usato anche per mantenere la lista ordinata senza riordinarla tutta.
+    //A parità di criterio decide l'ISBN (util.ISBN.ORDINE), così l'ordine è lo stesso qualunque sia
+    //la storia della lista e coincide con quello degli indici
+    Comparator<Libro> comparatore();
+
+    //Posizione in cui inserire il libro in una lista già ordinata, trovata con una ricerca binaria.
+    //Il libro va dopo quelli equivalenti, come farebbe un ordinamento stabile dopo un'aggiunta in coda.
+    default int posizioneInserimento(List<Libro> libri, Libro libro) {
+        return limiteSuperiore(libri, libro, 0, libri.size());
+    }
+
+    //Posizione dell'istanza indicata in una lista ordinata (confronto per riferimento), -1 se assente
+    default int posizione(List<Libro> libri, Libro libro) {
+        Comparator<Libro> cmp = comparatore();
+        int basso = 0, alto = libri.size();
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (cmp.compare(libri.get(medio), libro) < 0) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        for (int i = basso; i < libri.size() && cmp.compare(libri.get(i), libro) == 0; i++) {
+            if (libri.get(i) == libro) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //Prima posizione in [da, a) il cui libro segue strettamente quello indicato
+    private int limiteSuperiore(List<Libro> libri, Libro libro, int da, int a) {
+        Comparator<Libro> cmp = comparatore();
+        int basso = da, alto = a;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (cmp.compare(libri.get(medio), libro) <= 0) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return basso;
+    }
 }
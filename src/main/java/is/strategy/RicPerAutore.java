@@ -3,12 +3,24 @@ package is.strategy;
 import model.Libro;
 
 import java.util.List;
+import java.util.function.Predicate;
 
 public class RicPerAutore implements RicStrategy{
     //Ricerca per Autore
 
     @Override
     public List<Libro> cerca(List<Libro> libri, String autore) {
-        return libri.stream().filter(lib -> lib.getAutore().toLowerCase().contains(autore.toLowerCase())).toList();
+        return libri.stream().filter(condizione(autore)).toList();
+    }
+
+    @Override
+    public Predicate<Libro> condizione(String autore) {
+        String ricerca = autore.toLowerCase(); //una volta sola, non per ogni libro
+        return lib -> lib.getAutore().toLowerCase().contains(ricerca);
+    }
+
+    @Override
+    public Object chiaveCache(String autore) {
+        return autore.toLowerCase();
     }
 }
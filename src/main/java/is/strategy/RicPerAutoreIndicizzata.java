@@ -0,0 +1,45 @@
+package is.strategy;
+
+import model.IndiciLibreria;
+import model.Libro;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RicPerAutoreIndicizzata implements RicStrategy {
+    //ricerca per autore tramite l'indice a trigrammi: si verificano solo i candidati
+
+    private final RicPerAutore scansione = new RicPerAutore();
+
+    @Override
+    public List<Libro> cerca(List<Libro> libri, String autore) {
+        return scansione.cerca(libri, autore);
+    }
+
+    @Override
+    public List<Libro> cerca(IndiciLibreria indici, List<Libro> libri, String autore) {
+        int[] candidati = indici.candidatiAutore(autore);
+        if (candidati == null) {
+            return new ArrayList<>(cerca(libri, autore)); //ricerca troppo corta per l'indice
+        }
+        String ricerca = autore.toLowerCase();
+        List<Libro> risultati = new ArrayList<>();
+        for (int id : candidati) {
+            Libro libro = indici.libro(id);
+            if (libro.getAutore().toLowerCase().contains(ricerca)) {
+                risultati.add(libro);
+            }
+        }
+        return risultati;
+    }
+
+    @Override
+    public boolean mantieneOrdine() {
+        return false;
+    }
+
+    @Override
+    public Object chiaveCache(String autore) {
+        return scansione.chiaveCache(autore);
+    }
+}
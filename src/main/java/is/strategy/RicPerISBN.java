@@ -1,15 +1,36 @@
 package is.strategy;
 
+import model.IndiciLibreria;
 import model.Libro;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import util.ISBN;
+
 public class RicPerISBN implements RicStrategy {
     //ricerca per ISBN
 
+    //Stesso confronto dell'indice: un ISBN-10 e il suo ISBN-13, con o senza trattini, sono lo stesso libro
     @Override
     public List<Libro> cerca(List<Libro> libri, String isbn){
-        return libri.stream().filter(lib -> lib.getIsbn().equals(isbn)).collect(Collectors.toList());
+        long chiave = ISBN.chiave(isbn);
+        if (chiave == ISBN.NESSUNA_CHIAVE) {
+            return libri.stream().filter(lib -> ISBN.uguali(isbn, lib.getIsbn())).collect(Collectors.toList());
+        }
+        return libri.stream().filter(lib -> ISBN.chiave(lib.getIsbn()) == chiave).collect(Collectors.toList());
+    }
+
+    //Con l'indice primario la ricerca è una lookup diretta sull'ISBN normalizzato
+    @Override
+    public List<Libro> cerca(IndiciLibreria indici, List<Libro> libri, String isbn) {
+        Libro trovato = indici.perIsbn(isbn);
+        return trovato == null ? new ArrayList<>() : new ArrayList<>(List.of(trovato));
+    }
+
+    @Override
+    public Object chiaveCache(String isbn) {
+        return IndiciLibreria.normalizzaIsbn(isbn);
     }
 }
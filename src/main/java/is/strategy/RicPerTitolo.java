@@ -3,6 +3,7 @@ package is.strategy;
 import model.Libro;
 
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class RicPerTitolo implements RicStrategy {
@@ -10,7 +11,18 @@ public class RicPerTitolo implements RicStrategy {
 
     @Override
     public List<Libro> cerca(List<Libro> libri, String titolo) {
-        return libri.stream().filter(lib -> lib.getTitolo().toLowerCase().contains(titolo.toLowerCase())).collect(Collectors.toList());
+        return libri.stream().filter(condizione(titolo)).collect(Collectors.toList());
+    }
+
+    @Override
+    public Predicate<Libro> condizione(String titolo) {
+        String ricerca = titolo.toLowerCase(); //una volta sola, non per ogni libro
+        return lib -> lib.getTitolo().toLowerCase().contains(ricerca);
+    }
+
+    @Override
+    public Object chiaveCache(String titolo) {
+        return titolo.toLowerCase();
     }
 
 }
@@ -0,0 +1,45 @@
+package is.strategy;
+
+import model.IndiciLibreria;
+import model.Libro;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RicPerTitoloIndicizzata implements RicStrategy {
+    //ricerca per titolo tramite l'indice a trigrammi: si verificano solo i candidati
+
+    private final RicPerTitolo scansione = new RicPerTitolo();
+
+    @Override
+    public List<Libro> cerca(List<Libro> libri, String titolo) {
+        return scansione.cerca(libri, titolo);
+    }
+
+    @Override
+    public List<Libro> cerca(IndiciLibreria indici, List<Libro> libri, String titolo) {
+        int[] candidati = indici.candidatiTitolo(titolo);
+        if (candidati == null) {
+            return new ArrayList<>(cerca(libri, titolo)); //ricerca troppo corta per l'indice
+        }
+        String ricerca = titolo.toLowerCase();
+        List<Libro> risultati = new ArrayList<>();
+        for (int id : candidati) {
+            Libro libro = indici.libro(id);
+            if (libro.getTitolo().toLowerCase().contains(ricerca)) {
+                risultati.add(libro);
+            }
+        }
+        return risultati;
+    }
+
+    @Override
+    public boolean mantieneOrdine() {
+        return false;
+    }
+
+    @Override
+    public Object chiaveCache(String titolo) {
+        return scansione.chiaveCache(titolo);
+    }
+}
@@ -1,11 +1,37 @@
 package is.strategy;
 
+import model.IndiciLibreria;
 import model.Libro;
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface RicStrategy {
     //Pattern Strategy per ricerca
 
     List<Libro> cerca(List<Libro> libri, String criterio);
 
+    //Le strategie che possono sfruttare gli indici della libreria ridefiniscono questo metodo,
+    //le altre continuano a scorrere la lista
+    default List<Libro> cerca(IndiciLibreria indici, List<Libro> libri, String criterio) {
+        return cerca(libri, criterio);
+    }
+
+    //true se i risultati seguono l'ordine della lista ricevuta; le strategie che partono
+    //dagli indici restituiscono i libri in ordine di id e la libreria li riordina
+    default boolean mantieneOrdine() {
+        return true;
+    }
+
+    //Condizione sul singolo libro per le strategie che scorrono la lista: la ricerca a pagine
+    //la usa per fermarsi appena la pagina è piena. null se la strategia sa solo dare tutti i risultati
+    default Predicate<Libro> condizione(String criterio) {
+        return null;
+    }
+
+    //Criterio normalizzato con cui la libreria mette in cache i risultati (insieme al tipo di strategia):
+    //due criteri con la stessa chiave devono dare gli stessi risultati. null = risultati da non memorizzare
+    default Object chiaveCache(String criterio) {
+        return null;
+    }
+
 }
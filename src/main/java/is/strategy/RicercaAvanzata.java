@@ -0,0 +1,184 @@
+package is.strategy;
+
+import model.FiltroLibri;
+import model.IndiciLibreria;
+import model.Libro;
+import model.RicercaParallela;
+import model.StatisticheLibreria;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import util.ISBN;
+
+public class RicercaAvanzata implements RicStrategy {
+    //ricerca con più criteri: i criteri vengono letti una volta sola alla creazione,
+    //i candidati arrivano dall'indice più adatto e le condizioni rimaste vengono
+    //valutate dalla più selettiva (e meno costosa) alla meno selettiva.
+    //Il criterio passato a cerca viene ignorato: tutto è già nell'oggetto.
+
+    private static final double SELETTIVITA_TESTO = 0.1; //stima per "contiene" su titolo e autore
+    private static final double COSTO_CAMPO = 1;         //confronto su un campo numerico o sul genere
+    private static final double COSTO_TESTO = 10;        //minuscole + contains
+
+    private final String titolo;    //già in minuscolo, null se non richiesto
+    private final String autore;
+    private final String isbn;
+    private final FiltroLibri filtro;
+
+    //Condizione residua con la sua stima: frazione di libri che la soddisfano e costo per libro
+    private record Predicato(Predicate<Libro> test, double selettivita, double costo) {
+        //ordine classico per filtri in cascata: prima chi scarta di più a parità di costo
+        double rango() {
+            return costo / Math.max(1e-9, 1 - selettivita);
+        }
+    }
+
+    private record Criteri(String titolo, String autore, String isbn, FiltroLibri filtro) {}
+
+    public RicercaAvanzata(String titolo, String autore, String isbn, FiltroLibri filtro) {
+        this.titolo = vuotoANull(titolo) == null ? null : vuotoANull(titolo).toLowerCase();
+        this.autore = vuotoANull(autore) == null ? null : vuotoANull(autore).toLowerCase();
+        this.isbn = vuotoANull(isbn);
+        this.filtro = filtro == null ? FiltroLibri.tutti() : filtro;
+    }
+
+    //Senza indici: scansione con le condizioni già ordinate (a blocchi se la libreria cerca in parallelo)
+    @Override
+    public List<Libro> cerca(List<Libro> libri, String criterio) {
+        return RicercaParallela.filtra(libri, piano(null, null, true, true));
+    }
+
+    @Override
+    public List<Libro> cerca(IndiciLibreria indici, List<Libro> libri, String criterio) {
+        StatisticheLibreria statistiche = indici.getStatistiche();
+
+        // ISBN: lookup diretta, al massimo un candidato
+        if (isbn != null) {
+            Libro libro = indici.perIsbn(isbn);
+            List<Libro> risultati = new ArrayList<>(1);
+            if (libro != null && piano(indici, statistiche, false, true).test(libro)) {
+                risultati.add(libro);
+            }
+            return risultati;
+        }
+
+        // titolo o autore: candidati dall'indice a trigrammi, si parte dalla lista più corta
+        int[] candidati = null;
+        int[] perTitolo = titolo != null ? indici.candidatiTitolo(titolo) : null;
+        int[] perAutore = autore != null ? indici.candidatiAutore(autore) : null;
+        if (perTitolo != null && (perAutore == null || perTitolo.length <= perAutore.length)) {
+            candidati = perTitolo;
+        } else if (perAutore != null) {
+            candidati = perAutore;
+        }
+        if (candidati != null) {
+            return verifica(indici, candidati, piano(indici, statistiche, false, true));
+        }
+
+        // genere, stato, anni, valutazione: filtro sulle colonne, poi solo le condizioni di testo
+        if (!filtro.equals(FiltroLibri.tutti())) {
+            return verifica(indici, indici.filtra(filtro), piano(indici, statistiche, false, false));
+        }
+        return cerca(libri, criterio);
+    }
+
+    @Override
+    public boolean mantieneOrdine() {
+        return false;
+    }
+
+    //Il criterio passato è ignorato: la chiave sono i criteri già normalizzati dal costruttore
+    @Override
+    public Object chiaveCache(String criterio) {
+        return new Criteri(titolo, autore, IndiciLibreria.normalizzaIsbn(isbn), filtro);
+    }
+
+    //Verifica dei candidati; la vista sugli id evita di copiare i libri in una lista prima del filtro
+    private static List<Libro> verifica(IndiciLibreria indici, int[] ids, Predicate<Libro> test) {
+        List<Libro> candidati = new AbstractList<>() {
+            @Override
+            public Libro get(int i) {
+                return indici.libro(ids[i]);
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+        return RicercaParallela.filtra(candidati, test);
+    }
+
+    //Condizioni ancora da verificare, in ordine di rango; le stime vengono dalle statistiche della libreria
+    //e, per gli anni, dal conteggio esatto dell'indice degli anni
+    private Predicate<Libro> piano(IndiciLibreria indici, StatisticheLibreria statistiche, boolean conIsbn, boolean conFiltro) {
+        double totale = statistiche == null ? 0 : Math.max(1, statistiche.getTotale());
+        List<Predicato> predicati = new ArrayList<>();
+
+        if (conIsbn && isbn != null) {
+            predicati.add(new Predicato(l -> ISBN.uguali(isbn, l.getIsbn()),
+                    totale == 0 ? 0.01 : 1 / totale, COSTO_TESTO));
+        }
+        if (titolo != null) {
+            predicati.add(new Predicato(l -> l.getTitolo() != null && l.getTitolo().toLowerCase().contains(titolo),
+                    SELETTIVITA_TESTO, COSTO_TESTO));
+        }
+        if (autore != null) {
+            predicati.add(new Predicato(l -> l.getAutore() != null && l.getAutore().toLowerCase().contains(autore),
+                    SELETTIVITA_TESTO, COSTO_TESTO));
+        }
+        if (conFiltro) {
+            String genere = filtro.genere();
+            if (genere != null) {
+                double stima = totale == 0 ? 0.5 : statistiche.getNumeroPerGenere(genere) / totale;
+                predicati.add(new Predicato(l -> genere.equals(l.getGenere()), stima, COSTO_CAMPO));
+            }
+            Libro.StatoLettura stato = filtro.stato();
+            if (stato != null) {
+                double stima = totale == 0 ? 0.5 : statistiche.getNumeroPerStato(stato) / totale;
+                predicati.add(new Predicato(l -> l.getStatoLettura() == stato, stima, COSTO_CAMPO));
+            }
+            int annoMin = filtro.annoMin(), annoMax = filtro.annoMax();
+            if (annoMin != Integer.MIN_VALUE || annoMax != Integer.MAX_VALUE) {
+                predicati.add(new Predicato(l -> l.getAnnoPubblicazione() >= annoMin && l.getAnnoPubblicazione() <= annoMax,
+                        indici == null ? stimaAnni(statistiche, annoMin, annoMax)
+                                : indici.contaPerIntervalloAnni(annoMin, annoMax) / totale, COSTO_CAMPO));
+            }
+            int valutazioneMin = filtro.valutazioneMin();
+            if (valutazioneMin > 0) {
+                //solo i libri letti hanno una valutazione; si suppongono i voti da 1 a 5 equiprobabili
+                double letti = totale == 0 ? 0.5 : statistiche.getLetti() / totale;
+                predicati.add(new Predicato(l -> l.getValutazione() >= valutazioneMin,
+                        letti * Math.max(0, 6 - valutazioneMin) / 5, COSTO_CAMPO));
+            }
+        }
+
+        predicati.sort(Comparator.comparingDouble(Predicato::rango));
+        Predicate<Libro> test = l -> true;
+        for (Predicato p : predicati) {
+            test = test.and(p.test()); //and() valuta in cortocircuito nell'ordine di inserimento
+        }
+        return test;
+    }
+
+    //Frazione dell'intervallo di anni del catalogo coperta dalla ricerca (distribuzione supposta uniforme)
+    private static double stimaAnni(StatisticheLibreria statistiche, int annoMin, int annoMax) {
+        if (statistiche == null || statistiche.getAnnoMin().isEmpty()) {
+            return 0.5;
+        }
+        long minimo = statistiche.getAnnoMin().getAsInt(), massimo = statistiche.getAnnoMax().getAsInt();
+        long da = Math.max(minimo, annoMin), a = Math.min(massimo, annoMax);
+        if (da > a) {
+            return 0;
+        }
+        return (double) (a - da + 1) / (massimo - minimo + 1);
+    }
+
+    private static String vuotoANull(String s) {
+        return s == null || s.trim().isEmpty() ? null : s.trim();
+    }
+}
@@ -0,0 +1,66 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Contatori della libreria aggiornati ad ogni aggiunta e rimozione.
+ * L'istantanea pubblica viene ricostruita (in tempo proporzionale al numero di generi)
+ * una volta per ogni versione pubblicata da Libreria, con il lock degli indici in scrittura;
+ * le letture successive, fino alla modifica seguente, riusano la stessa.
+ */
+class Aggregati {
+
+    private int totale;
+    private final int[] perStato = new int[Libro.StatoLettura.values().length];
+    private final Map<String, Integer> perGenere = new HashMap<>();
+    private StatisticheLibreria istantanea;
+
+    void aggiungi(Libro libro) {
+        totale++;
+        if (libro.getStatoLettura() != null) {
+            perStato[libro.getStatoLettura().ordinal()]++;
+        }
+        perGenere.merge(libro.getGenere(), 1, Integer::sum);
+        istantanea = null;
+    }
+
+    void rimuovi(Libro libro) {
+        totale--;
+        if (libro.getStatoLettura() != null) {
+            perStato[libro.getStatoLettura().ordinal()]--;
+        }
+        decrementa(perGenere, libro.getGenere());
+        istantanea = null;
+    }
+
+    void svuota() {
+        totale = 0;
+        Arrays.fill(perStato, 0);
+        perGenere.clear();
+        istantanea = null;
+    }
+
+    //Gli anni estremi arrivano dall'indice degli anni, che li tiene già aggiornati
+    StatisticheLibreria istantanea(OptionalInt annoMin, OptionalInt annoMax) {
+        if (istantanea == null) {
+            List<String> generi = new ArrayList<>(perGenere.keySet());
+            generi.remove(null);
+            generi.sort(String.CASE_INSENSITIVE_ORDER);
+            istantanea = new StatisticheLibreria(totale, perStato.clone(),
+                    Collections.unmodifiableMap(new HashMap<>(perGenere)),
+                    Collections.unmodifiableList(generi),
+                    annoMin, annoMax);
+        }
+        return istantanea;
+    }
+
+    private static <K> void decrementa(Map<K, Integer> conteggi, K chiave) {
+        conteggi.computeIfPresent(chiave, (k, n) -> n == 1 ? null : n - 1);
+    }
+}
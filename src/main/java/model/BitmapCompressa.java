@@ -0,0 +1,305 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Insieme di id (interi non negativi) compresso a blocchi di 65536 valori, sullo schema delle
+ * roaring bitmap: ogni blocco è un array ordinato dei 16 bit bassi finché contiene al più
+ * 4096 valori, oltre diventa una bitmap di 1024 long. Intersezione e unione lavorano
+ * blocco per blocco e la cardinalità è mantenuta ad ogni modifica.
+ */
+final class BitmapCompressa {
+
+    private static final int MAX_ARRAY = 4096;
+    private static final int PAROLE = 1024; //65536 bit
+
+    //Blocco: array ordinato (bit == null) oppure bitmap
+    private static final class Blocco {
+        char[] valori;
+        long[] bit;
+        int cardinalita;
+
+        static Blocco array(char[] valori, int cardinalita) {
+            Blocco b = new Blocco();
+            b.valori = valori;
+            b.cardinalita = cardinalita;
+            return b;
+        }
+
+        static Blocco bitmap(long[] bit, int cardinalita) {
+            Blocco b = new Blocco();
+            b.bit = bit;
+            b.cardinalita = cardinalita;
+            return b;
+        }
+
+        boolean contiene(char v) {
+            if (bit != null) {
+                return (bit[v >>> 6] & (1L << v)) != 0;
+            }
+            return Arrays.binarySearch(valori, 0, cardinalita, v) >= 0;
+        }
+
+        boolean aggiungi(char v) {
+            if (bit != null) {
+                long prima = bit[v >>> 6];
+                bit[v >>> 6] = prima | (1L << v);
+                if (prima == bit[v >>> 6]) {
+                    return false;
+                }
+                cardinalita++;
+                return true;
+            }
+            int pos = Arrays.binarySearch(valori, 0, cardinalita, v);
+            if (pos >= 0) {
+                return false;
+            }
+            if (cardinalita == MAX_ARRAY) {
+                inBitmap();
+                return aggiungi(v);
+            }
+            pos = -pos - 1;
+            if (cardinalita == valori.length) {
+                valori = Arrays.copyOf(valori, Math.min(MAX_ARRAY, Math.max(4, cardinalita * 2)));
+            }
+            System.arraycopy(valori, pos, valori, pos + 1, cardinalita - pos);
+            valori[pos] = v;
+            cardinalita++;
+            return true;
+        }
+
+        boolean rimuovi(char v) {
+            if (bit != null) {
+                long prima = bit[v >>> 6];
+                bit[v >>> 6] = prima & ~(1L << v);
+                if (prima == bit[v >>> 6]) {
+                    return false;
+                }
+                if (--cardinalita <= MAX_ARRAY / 2) {
+                    inArray(); //isteresi: non si passa avanti e indietro vicino alla soglia
+                }
+                return true;
+            }
+            int pos = Arrays.binarySearch(valori, 0, cardinalita, v);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(valori, pos + 1, valori, pos, cardinalita - pos - 1);
+            cardinalita--;
+            return true;
+        }
+
+        private void inBitmap() {
+            long[] nuovi = new long[PAROLE];
+            for (int i = 0; i < cardinalita; i++) {
+                nuovi[valori[i] >>> 6] |= 1L << valori[i];
+            }
+            bit = nuovi;
+            valori = null;
+        }
+
+        private void inArray() {
+            valori = daBitmap(bit, cardinalita);
+            bit = null;
+        }
+    }
+
+    private char[] chiavi = new char[4];      //16 bit alti di ogni blocco, in ordine
+    private Blocco[] blocchi = new Blocco[4];
+    private int numBlocchi;
+    private int cardinalita;
+
+    void aggiungi(int id) {
+        char alta = (char) (id >>> 16);
+        int k = Arrays.binarySearch(chiavi, 0, numBlocchi, alta);
+        if (k < 0) {
+            k = -k - 1;
+            inserisciBlocco(k, alta, Blocco.array(new char[4], 0));
+        }
+        if (blocchi[k].aggiungi((char) id)) {
+            cardinalita++;
+        }
+    }
+
+    void rimuovi(int id) {
+        int k = Arrays.binarySearch(chiavi, 0, numBlocchi, (char) (id >>> 16));
+        if (k < 0 || !blocchi[k].rimuovi((char) id)) {
+            return;
+        }
+        cardinalita--;
+        if (blocchi[k].cardinalita == 0) {
+            System.arraycopy(chiavi, k + 1, chiavi, k, numBlocchi - k - 1);
+            System.arraycopy(blocchi, k + 1, blocchi, k, numBlocchi - k - 1);
+            blocchi[--numBlocchi] = null;
+        }
+    }
+
+    boolean contiene(int id) {
+        int k = Arrays.binarySearch(chiavi, 0, numBlocchi, (char) (id >>> 16));
+        return k >= 0 && blocchi[k].contiene((char) id);
+    }
+
+    int cardinalita() {
+        return cardinalita;
+    }
+
+    //Id in ordine crescente
+    int[] comeArray() {
+        int[] ids = new int[cardinalita];
+        int n = 0;
+        for (int k = 0; k < numBlocchi; k++) {
+            int alta = chiavi[k] << 16;
+            Blocco b = blocchi[k];
+            if (b.bit == null) {
+                for (int i = 0; i < b.cardinalita; i++) {
+                    ids[n++] = alta | b.valori[i];
+                }
+            } else {
+                for (int w = 0; w < PAROLE; w++) {
+                    long parola = b.bit[w];
+                    while (parola != 0) {
+                        ids[n++] = alta | (w << 6) | Long.numberOfTrailingZeros(parola);
+                        parola &= parola - 1;
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    /* ───────────────────────────  OPERAZIONI TRA INSIEMI  ─────────────────────────── */
+
+    static BitmapCompressa intersezione(BitmapCompressa a, BitmapCompressa b) {
+        BitmapCompressa r = new BitmapCompressa();
+        int i = 0, j = 0;
+        while (i < a.numBlocchi && j < b.numBlocchi) {
+            if (a.chiavi[i] < b.chiavi[j]) {
+                i++;
+            } else if (a.chiavi[i] > b.chiavi[j]) {
+                j++;
+            } else {
+                Blocco blocco = intersezione(a.blocchi[i], b.blocchi[j]);
+                if (blocco.cardinalita > 0) {
+                    r.inserisciBlocco(r.numBlocchi, a.chiavi[i], blocco);
+                    r.cardinalita += blocco.cardinalita;
+                }
+                i++;
+                j++;
+            }
+        }
+        return r;
+    }
+
+    static BitmapCompressa unione(BitmapCompressa a, BitmapCompressa b) {
+        BitmapCompressa r = new BitmapCompressa();
+        int i = 0, j = 0;
+        while (i < a.numBlocchi || j < b.numBlocchi) {
+            Blocco blocco;
+            char chiave;
+            if (j == b.numBlocchi || (i < a.numBlocchi && a.chiavi[i] < b.chiavi[j])) {
+                chiave = a.chiavi[i];
+                blocco = copia(a.blocchi[i++]);
+            } else if (i == a.numBlocchi || a.chiavi[i] > b.chiavi[j]) {
+                chiave = b.chiavi[j];
+                blocco = copia(b.blocchi[j++]);
+            } else {
+                chiave = a.chiavi[i];
+                blocco = unione(a.blocchi[i++], b.blocchi[j++]);
+            }
+            r.inserisciBlocco(r.numBlocchi, chiave, blocco);
+            r.cardinalita += blocco.cardinalita;
+        }
+        return r;
+    }
+
+    private static Blocco intersezione(Blocco a, Blocco b) {
+        if (a.bit != null && b.bit != null) {
+            long[] bit = new long[PAROLE];
+            int n = 0;
+            for (int w = 0; w < PAROLE; w++) {
+                bit[w] = a.bit[w] & b.bit[w];
+                n += Long.bitCount(bit[w]);
+            }
+            return n > MAX_ARRAY ? Blocco.bitmap(bit, n) : Blocco.array(daBitmap(bit, n), n);
+        }
+        if (a.bit != null) {
+            Blocco t = a;
+            a = b;
+            b = t;
+        }
+        //a è un array: si tengono i suoi valori presenti anche in b
+        char[] valori = new char[a.cardinalita];
+        int n = 0;
+        for (int i = 0; i < a.cardinalita; i++) {
+            if (b.contiene(a.valori[i])) {
+                valori[n++] = a.valori[i];
+            }
+        }
+        return Blocco.array(valori, n);
+    }
+
+    private static Blocco unione(Blocco a, Blocco b) {
+        if (a.bit == null && b.bit == null && a.cardinalita + b.cardinalita <= MAX_ARRAY) {
+            char[] valori = new char[a.cardinalita + b.cardinalita];
+            int i = 0, j = 0, n = 0;
+            while (i < a.cardinalita || j < b.cardinalita) {
+                if (j == b.cardinalita || (i < a.cardinalita && a.valori[i] < b.valori[j])) {
+                    valori[n++] = a.valori[i++];
+                } else if (i == a.cardinalita || a.valori[i] > b.valori[j]) {
+                    valori[n++] = b.valori[j++];
+                } else {
+                    valori[n++] = a.valori[i++];
+                    j++;
+                }
+            }
+            return Blocco.array(valori, n);
+        }
+        long[] bit = new long[PAROLE];
+        for (Blocco x : new Blocco[]{a, b}) {
+            if (x.bit != null) {
+                for (int w = 0; w < PAROLE; w++) {
+                    bit[w] |= x.bit[w];
+                }
+            } else {
+                for (int i = 0; i < x.cardinalita; i++) {
+                    bit[x.valori[i] >>> 6] |= 1L << x.valori[i];
+                }
+            }
+        }
+        int n = 0;
+        for (long parola : bit) {
+            n += Long.bitCount(parola);
+        }
+        return n > MAX_ARRAY ? Blocco.bitmap(bit, n) : Blocco.array(daBitmap(bit, n), n);
+    }
+
+    private static Blocco copia(Blocco b) {
+        return b.bit != null ? Blocco.bitmap(b.bit.clone(), b.cardinalita)
+                : Blocco.array(Arrays.copyOf(b.valori, b.cardinalita), b.cardinalita);
+    }
+
+    private static char[] daBitmap(long[] bit, int cardinalita) {
+        char[] valori = new char[cardinalita];
+        int n = 0;
+        for (int w = 0; w < PAROLE; w++) {
+            long parola = bit[w];
+            while (parola != 0) {
+                valori[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(parola));
+                parola &= parola - 1;
+            }
+        }
+        return valori;
+    }
+
+    private void inserisciBlocco(int k, char chiave, Blocco blocco) {
+        if (numBlocchi == chiavi.length) {
+            chiavi = Arrays.copyOf(chiavi, numBlocchi * 2);
+            blocchi = Arrays.copyOf(blocchi, numBlocchi * 2);
+        }
+        System.arraycopy(chiavi, k, chiavi, k + 1, numBlocchi - k);
+        System.arraycopy(blocchi, k, blocchi, k + 1, numBlocchi - k);
+        chiavi[k] = chiave;
+        blocchi[k] = blocco;
+        numBlocchi++;
+    }
+}
@@ -0,0 +1,88 @@
+package model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache LRU dei risultati delle ricerche, legata alla versione della libreria.
+ * Ogni risultato ricorda la versione dell'istantanea su cui è stato calcolato: qualunque
+ * modifica (aggiunta, rimozione, modifica, caricamento, riordino) pubblica una versione nuova
+ * e alla prima lettura successiva la cache si svuota, quindi non restituisce mai risultati
+ * vecchi. Oltre la capacità viene scartata la ricerca usata meno di recente.
+ */
+public final class CacheRicerche {
+
+    public record Statistiche(long successi, long mancati, int voci) {
+        public double tassoSuccessi() {
+            long totale = successi + mancati;
+            return totale == 0 ? 0 : (double) successi / totale;
+        }
+    }
+
+    private final Map<Object, List<Libro>> risultati;
+    private int capacita;
+    private long versione = -1;
+    private long successi;
+    private long mancati;
+
+    CacheRicerche(int capacita) {
+        this.capacita = capacita;
+        this.risultati = new LinkedHashMap<>(16, 0.75f, true) { //ordine di accesso: il primo è il meno recente
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, List<Libro>> piuVecchia) {
+                return size() > CacheRicerche.this.capacita;
+            }
+        };
+    }
+
+    //Risultato per la chiave calcolato sulla versione indicata, null se non c'è
+    synchronized List<Libro> cerca(Object chiave, long versione) {
+        allinea(versione);
+        List<Libro> trovato = versione == this.versione ? risultati.get(chiave) : null;
+        if (trovato != null) {
+            successi++;
+        } else {
+            mancati++;
+        }
+        return trovato;
+    }
+
+    synchronized void memorizza(Object chiave, long versione, List<Libro> risultato) {
+        if (versione < this.versione) {
+            return; //calcolato su una versione già superata
+        }
+        allinea(versione);
+        risultati.put(chiave, risultato);
+    }
+
+    //Con capacità 0 non si memorizza nulla; se la capacità scende si scartano le voci meno recenti
+    synchronized void setCapacita(int capacita) {
+        if (capacita < 0) {
+            throw new IllegalArgumentException("Capacità della cache non valida: " + capacita);
+        }
+        this.capacita = capacita;
+        Iterator<Object> chiavi = risultati.keySet().iterator();
+        while (risultati.size() > capacita && chiavi.hasNext()) {
+            chiavi.next();
+            chiavi.remove();
+        }
+    }
+
+    synchronized void svuota() {
+        risultati.clear();
+    }
+
+    synchronized Statistiche statistiche() {
+        return new Statistiche(successi, mancati, risultati.size());
+    }
+
+    //Una versione più nuova rende vecchio tutto il contenuto; una più vecchia (lettore in ritardo) non tocca nulla
+    private void allinea(long versione) {
+        if (versione > this.versione) {
+            risultati.clear();
+            this.versione = versione;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package model;
+
+import util.ISBN;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Copia per colonne dei campi usati dai filtri: anno, valutazione e stato in array primitivi,
+ * il genere (già condiviso dal dizionario) e l'ISBN in array a parte. La posizione è l'id
+ * assegnato da {@link IndiciLibreria}, così i filtri e l'ordinamento per anno scorrono
+ * array contigui invece di seguire un riferimento per ogni libro e per ogni campo.
+ */
+class ColonneLibri {
+
+    private static final byte VUOTO = -2;       //id non assegnato
+    private static final byte SENZA_STATO = -1; //libro con stato null
+
+    private int[] anni = new int[64];
+    private byte[] valutazioni = new byte[64];
+    private byte[] stati = vuoti(64);
+    private String[] generi = new String[64];
+    private String[] isbn = new String[64]; //a parità di anno decide l'ordine, come in OrdStrategy
+    private int limite; //1 + id più alto mai usato
+
+    void imposta(int id, Libro libro) {
+        if (id >= stati.length) {
+            int capacita = Math.max(id + 1, stati.length * 2);
+            anni = Arrays.copyOf(anni, capacita);
+            valutazioni = Arrays.copyOf(valutazioni, capacita);
+            generi = Arrays.copyOf(generi, capacita);
+            isbn = Arrays.copyOf(isbn, capacita);
+            byte[] nuoviStati = vuoti(capacita);
+            System.arraycopy(stati, 0, nuoviStati, 0, stati.length);
+            stati = nuoviStati;
+        }
+        anni[id] = libro.getAnnoPubblicazione();
+        valutazioni[id] = (byte) libro.getValutazione();
+        generi[id] = libro.getGenere();
+        isbn[id] = libro.getIsbn();
+        stati[id] = libro.getStatoLettura() == null ? SENZA_STATO : (byte) libro.getStatoLettura().ordinal();
+        limite = Math.max(limite, id + 1);
+    }
+
+    void rimuovi(int id) {
+        stati[id] = VUOTO;
+        generi[id] = null;
+        isbn[id] = null;
+    }
+
+    void svuota() {
+        Arrays.fill(stati, 0, limite, VUOTO);
+        Arrays.fill(generi, 0, limite, null);
+        Arrays.fill(isbn, 0, limite, null);
+        limite = 0;
+    }
+
+    //Id dei libri che soddisfano il filtro, in ordine di id; sui cataloghi grandi la scansione
+    //delle colonne viene divisa a blocchi se la ricerca è in modalità parallela
+    int[] filtra(FiltroLibri filtro) {
+        return RicercaParallela.filtraId(Math.min(limite, stati.length), condizione(filtro));
+    }
+
+    //Come sopra, ma controllando solo gli id candidati
+    int[] filtra(FiltroLibri filtro, int[] candidati) {
+        IntPredicate condizione = condizione(filtro);
+        int[] risultato = new int[Math.min(16, Math.max(1, candidati.length))];
+        int n = 0;
+        for (int id : candidati) {
+            if (condizione.test(id)) {
+                if (n == risultato.length) {
+                    risultato = Arrays.copyOf(risultato, n * 2);
+                }
+                risultato[n++] = id;
+            }
+        }
+        return Arrays.copyOf(risultato, n);
+    }
+
+    //Condizione del filtro su un id, sulle colonne lette una volta sola
+    private IntPredicate condizione(FiltroLibri filtro) {
+        byte[] stati = this.stati;
+        int[] anni = this.anni;
+        byte[] valutazioni = this.valutazioni;
+        String[] generi = this.generi;
+
+        byte stato = filtro.stato() == null ? VUOTO : (byte) filtro.stato().ordinal();
+        int annoMin = filtro.annoMin(), annoMax = filtro.annoMax(), valutazioneMin = filtro.valutazioneMin();
+        String genere = filtro.genere();
+
+        return id -> {
+            byte s = stati[id];
+            if (s == VUOTO || (stato != VUOTO && s != stato)) {
+                return false;
+            }
+            int anno = anni[id];
+            if (anno < annoMin || anno > annoMax || valutazioni[id] < valutazioneMin) {
+                return false;
+            }
+            return genere == null || generi[id] == genere || genere.equals(generi[id]);
+        };
+    }
+
+    //Ordina gli id per anno e a parità di anno per ISBN, come la lista ordinata con OrdPerAnno:
+    //anno e id vengono impacchettati in un long e ordinati come primitivi, senza accessi ai libri;
+    //solo i gruppi con lo stesso anno passano poi dal confronto degli ISBN
+    int[] ordinaPerAnno(int[] ids) {
+        long[] chiavi = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            chiavi[i] = ((long) anni[ids[i]] << 32) | ids[i];
+        }
+        Arrays.sort(chiavi);
+        int[] ordinati = new int[ids.length];
+        for (int i = 0; i < chiavi.length; i++) {
+            ordinati[i] = (int) chiavi[i];
+        }
+        return ordinaStessoAnno(ordinati);
+    }
+
+    //Id già in ordine di anno: ogni gruppo con lo stesso anno viene messo in ordine di ISBN
+    int[] ordinaStessoAnno(int[] ids) {
+        int inizio = 0;
+        for (int i = 1; i <= ids.length; i++) {
+            if (i == ids.length || anni[ids[i]] != anni[ids[inizio]]) {
+                if (i - inizio > 1) {
+                    ordinaPerIsbn(ids, inizio, i);
+                }
+                inizio = i;
+            }
+        }
+        return ids;
+    }
+
+    private void ordinaPerIsbn(int[] ids, int da, int a) {
+        String[] isbn = this.isbn;
+        Integer[] gruppo = new Integer[a - da];
+        for (int i = da; i < a; i++) {
+            gruppo[i - da] = ids[i];
+        }
+        Arrays.sort(gruppo, (x, y) -> ISBN.ORDINE.compare(isbn[x], isbn[y]));
+        for (int i = da; i < a; i++) {
+            ids[i] = gruppo[i - da];
+        }
+    }
+
+    private static byte[] vuoti(int capacita) {
+        byte[] stati = new byte[capacita];
+        Arrays.fill(stati, VUOTO);
+        return stati;
+    }
+}
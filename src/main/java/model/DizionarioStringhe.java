@@ -0,0 +1,46 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dizionario condiviso per le stringhe che si ripetono molto nel catalogo (generi e autori).
+ * Stringhe uguali vengono sostituite da un'unica istanza, così un catalogo con pochi generi
+ * e autori ricorrenti non tiene in memoria una copia per ogni libro.
+ * I valori restano nel dizionario anche quando nessun libro li usa più: generi e autori
+ * distinti sono comunque pochi rispetto al numero di libri.
+ */
+public final class DizionarioStringhe {
+
+    private static final DizionarioStringhe GENERI = new DizionarioStringhe();
+    private static final DizionarioStringhe AUTORI = new DizionarioStringhe();
+
+    private final ConcurrentHashMap<String, String> valori = new ConcurrentHashMap<>();
+
+    private DizionarioStringhe() {}
+
+    public static DizionarioStringhe generi() {
+        return GENERI;
+    }
+
+    public static DizionarioStringhe autori() {
+        return AUTORI;
+    }
+
+    //Restituisce l'istanza condivisa uguale a s (null resta null)
+    public String interna(String s) {
+        if (s == null) {
+            return null;
+        }
+        String presente = valori.get(s);
+        if (presente != null) {
+            return presente;
+        }
+        presente = valori.putIfAbsent(s, s);
+        return presente != null ? presente : s;
+    }
+
+    //Numero di valori distinti memorizzati
+    public int size() {
+        return valori.size();
+    }
+}
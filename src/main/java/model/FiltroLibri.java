@@ -0,0 +1,37 @@
+package model;
+
+/**
+ * Criteri di filtro sui campi numerici e sul genere di un libro.
+ * I campi a null (o agli estremi) non filtrano nulla; si costruisce partendo da {@link #tutti()}.
+ */
+public record FiltroLibri(String genere, Libro.StatoLettura stato, int annoMin, int annoMax, int valutazioneMin) {
+
+    public static FiltroLibri tutti() {
+        return new FiltroLibri(null, null, Integer.MIN_VALUE, Integer.MAX_VALUE, 0);
+    }
+
+    public FiltroLibri conGenere(String genere) {
+        return new FiltroLibri(genere, stato, annoMin, annoMax, valutazioneMin);
+    }
+
+    public FiltroLibri conStato(Libro.StatoLettura stato) {
+        return new FiltroLibri(genere, stato, annoMin, annoMax, valutazioneMin);
+    }
+
+    public FiltroLibri conAnni(int annoMin, int annoMax) {
+        return new FiltroLibri(genere, stato, annoMin, annoMax, valutazioneMin);
+    }
+
+    public FiltroLibri conValutazioneMin(int valutazioneMin) {
+        return new FiltroLibri(genere, stato, annoMin, annoMax, valutazioneMin);
+    }
+
+    //Stesso controllo fatto sulle colonne, per i libri già in mano
+    public boolean accetta(Libro libro) {
+        return (genere == null || genere.equals(libro.getGenere()))
+                && (stato == null || stato == libro.getStatoLettura())
+                && libro.getAnnoPubblicazione() >= annoMin
+                && libro.getAnnoPubblicazione() <= annoMax
+                && libro.getValutazione() >= valutazioneMin;
+    }
+}
@@ -0,0 +1,95 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
+
+/**
+ * Indice ordinato sull'anno di pubblicazione: per ogni anno l'insieme degli id dei libri.
+ * Una ricerca per intervallo costa O(log anni) per trovare il primo anno più i risultati,
+ * gli anni estremi sono tenuti in due campi e la visita degli anni in ordine dà
+ * direttamente la lista ordinata per anno, senza ordinamento.
+ */
+class IndiceAnni {
+
+    private final TreeMap<Integer, BitmapCompressa> perAnno = new TreeMap<>();
+    private int annoMin = Integer.MAX_VALUE;
+    private int annoMax = Integer.MIN_VALUE;
+    private int totale;
+
+    void aggiungi(int id, int anno) {
+        perAnno.computeIfAbsent(anno, a -> new BitmapCompressa()).aggiungi(id);
+        annoMin = Math.min(annoMin, anno);
+        annoMax = Math.max(annoMax, anno);
+        totale++;
+    }
+
+    void rimuovi(int id, int anno) {
+        BitmapCompressa ids = perAnno.get(anno);
+        if (ids == null || !ids.contiene(id)) {
+            return;
+        }
+        ids.rimuovi(id);
+        totale--;
+        if (ids.cardinalita() == 0) {
+            perAnno.remove(anno);
+            annoMin = perAnno.isEmpty() ? Integer.MAX_VALUE : perAnno.firstKey();
+            annoMax = perAnno.isEmpty() ? Integer.MIN_VALUE : perAnno.lastKey();
+        }
+    }
+
+    void svuota() {
+        perAnno.clear();
+        annoMin = Integer.MAX_VALUE;
+        annoMax = Integer.MIN_VALUE;
+        totale = 0;
+    }
+
+    OptionalInt annoMin() {
+        return totale == 0 ? OptionalInt.empty() : OptionalInt.of(annoMin);
+    }
+
+    OptionalInt annoMax() {
+        return totale == 0 ? OptionalInt.empty() : OptionalInt.of(annoMax);
+    }
+
+    //Id dei libri con anno in [da, a], ordinati per anno e a parità di anno per id
+    int[] intervallo(int da, int a) {
+        if (da > a) {
+            return new int[0];
+        }
+        Map<Integer, BitmapCompressa> anni = perAnno.subMap(da, true, a, true);
+        int[] ids = new int[16];
+        int n = 0;
+        for (BitmapCompressa perUnAnno : anni.values()) {
+            int[] parte = perUnAnno.comeArray();
+            if (n + parte.length > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2, n + parte.length));
+            }
+            System.arraycopy(parte, 0, ids, n, parte.length);
+            n += parte.length;
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    //Numero di libri con anno in [da, a]: solo le cardinalità, nessun id estratto
+    int conta(int da, int a) {
+        if (da > a) {
+            return 0;
+        }
+        if (da <= annoMin && a >= annoMax) {
+            return totale;
+        }
+        int n = 0;
+        for (BitmapCompressa perUnAnno : perAnno.subMap(da, true, a, true).values()) {
+            n += perUnAnno.cardinalita();
+        }
+        return n;
+    }
+
+    //Tutti gli id in ordine di anno
+    int[] tutti() {
+        return intervallo(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,128 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Indice invertito a trigrammi su un campo testuale (titolo o autore).
+ * Per ogni sequenza di tre caratteri del testo in minuscolo conserva la lista ordinata
+ * degli id dei libri che la contengono; una sottostringa lunga almeno tre caratteri
+ * può comparire solo nei libri presenti in tutte le liste dei suoi trigrammi.
+ */
+class IndiceTrigrammi {
+
+    static final int LUNGHEZZA_MINIMA = 3;
+
+    private final Map<Long, Posting> posting = new HashMap<>();
+
+    void aggiungi(int id, String testo) {
+        if (testo == null) {
+            return;
+        }
+        String minuscolo = testo.toLowerCase();
+        for (int i = 0; i + LUNGHEZZA_MINIMA <= minuscolo.length(); i++) {
+            posting.computeIfAbsent(trigramma(minuscolo, i), k -> new Posting()).aggiungi(id);
+        }
+    }
+
+    void rimuovi(int id, String testo) {
+        if (testo == null) {
+            return;
+        }
+        String minuscolo = testo.toLowerCase();
+        for (int i = 0; i + LUNGHEZZA_MINIMA <= minuscolo.length(); i++) {
+            Long chiave = trigramma(minuscolo, i);
+            Posting p = posting.get(chiave);
+            if (p != null && p.rimuovi(id) && p.size == 0) {
+                posting.remove(chiave);
+            }
+        }
+    }
+
+    void svuota() {
+        posting.clear();
+    }
+
+    //Id dei libri che contengono tutti i trigrammi della ricerca, in ordine crescente.
+    //Restituisce null se la ricerca è troppo corta per usare l'indice.
+    //I candidati vanno comunque verificati: i trigrammi possono comparire in punti diversi del testo.
+    int[] candidati(String ricerca) {
+        String minuscolo = ricerca.toLowerCase();
+        if (minuscolo.length() < LUNGHEZZA_MINIMA) {
+            return null;
+        }
+
+        int n = minuscolo.length() - LUNGHEZZA_MINIMA + 1;
+        Posting[] liste = new Posting[n];
+        for (int i = 0; i < n; i++) {
+            Posting p = posting.get(trigramma(minuscolo, i));
+            if (p == null) {
+                return new int[0];
+            }
+            liste[i] = p;
+        }
+
+        //si parte dalla lista più corta, così le intersezioni successive lavorano su pochi id
+        Arrays.sort(liste, (a, b) -> Integer.compare(a.size, b.size));
+        int[] risultato = Arrays.copyOf(liste[0].ids, liste[0].size);
+        int dimensione = risultato.length;
+        for (int i = 1; i < n && dimensione > 0; i++) {
+            if (liste[i] == liste[i - 1]) {
+                continue; //trigramma ripetuto nella ricerca
+            }
+            int k = 0;
+            for (int j = 0; j < dimensione; j++) {
+                if (liste[i].contiene(risultato[j])) {
+                    risultato[k++] = risultato[j];
+                }
+            }
+            dimensione = k;
+        }
+        return Arrays.copyOf(risultato, dimensione);
+    }
+
+    private static Long trigramma(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    //Lista ordinata e senza duplicati di id
+    private static final class Posting {
+        private int[] ids = new int[4];
+        private int size;
+
+        void aggiungi(int id) {
+            if (size > 0 && ids[size - 1] < id) {
+                aggiungiIn(size, id); //caso comune: id crescenti durante la ricostruzione
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                aggiungiIn(-pos - 1, id);
+            }
+        }
+
+        boolean rimuovi(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        boolean contiene(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void aggiungiIn(int pos, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import util.ISBN;
+
+/**
+ * Indici in memoria della libreria, tenuti allineati alla lista dei libri da {@link Libreria}.
+ * L'indice primario associa la chiave canonica dell'ISBN ({@link ISBN#chiave}) al libro in una
+ * mappa di long, così ricerca, controllo dei duplicati e rimozione non devono più scorrere
+ * tutta la lista; i codici che non sono ISBN restano in una mappa sulla stringa normalizzata.
+ * Ogni libro indicizzato riceve un id interno (riutilizzato dopo una rimozione)
+ * che gli indici secondari usano al posto del riferimento al libro.
+ */
+public class IndiciLibreria {
+
+    private final MappaLongInt idPerChiave = new MappaLongInt();
+    private final Map<String, Integer> idPerCodice = new HashMap<>(); //codici che non sono ISBN
+    private final List<Libro> perId = new ArrayList<>();
+    private int[] idLiberi = new int[16];
+    private int numIdLiberi;
+
+    private final IndiceTrigrammi trigrammiTitolo = new IndiceTrigrammi();
+    private final IndiceTrigrammi trigrammiAutore = new IndiceTrigrammi();
+    private final Aggregati aggregati = new Aggregati();
+    private final ColonneLibri colonne = new ColonneLibri();
+    private final Map<String, BitmapCompressa> bitmapGenere = new HashMap<>();
+    private final BitmapCompressa[] bitmapStato = new BitmapCompressa[Libro.StatoLettura.values().length];
+    private final IndiceAnni anni = new IndiceAnni();
+
+    public IndiciLibreria() {
+        for (int i = 0; i < bitmapStato.length; i++) {
+            bitmapStato[i] = new BitmapCompressa();
+        }
+    }
+
+    //Forma canonica dell'ISBN usata come chiave dai codici che non entrano nella mappa di long
+    public static String normalizzaIsbn(String isbn) {
+        return ISBN.normalizza(isbn);
+    }
+
+    public Libro perIsbn(String isbn) {
+        int id = idDi(isbn);
+        return id < 0 ? null : perId.get(id);
+    }
+
+    public boolean contieneIsbn(String isbn) {
+        return idDi(isbn) >= 0;
+    }
+
+    public int size() {
+        return idPerChiave.size() + idPerCodice.size();
+    }
+
+    //Libro associato a un id restituito dagli indici secondari
+    public Libro libro(int id) {
+        return perId.get(id);
+    }
+
+    //Id dei libri il cui titolo contiene tutti i trigrammi della ricerca (null se la ricerca è troppo corta)
+    public int[] candidatiTitolo(String ricerca) {
+        return trigrammiTitolo.candidati(ricerca);
+    }
+
+    //Id dei libri il cui autore contiene tutti i trigrammi della ricerca (null se la ricerca è troppo corta)
+    public int[] candidatiAutore(String ricerca) {
+        return trigrammiAutore.candidati(ricerca);
+    }
+
+    //Id dei libri che soddisfano il filtro: i candidati arrivano dall'insieme più piccolo tra
+    //le bitmap di genere e stato e l'indice degli anni, il resto si controlla sulle colonne
+    public int[] filtra(FiltroLibri filtro) {
+        boolean conAnni = filtro.annoMin() != Integer.MIN_VALUE || filtro.annoMax() != Integer.MAX_VALUE;
+        BitmapCompressa facette = filtro.genere() == null && filtro.stato() == null ? null
+                : facette(filtro.genere() == null ? null : List.of(filtro.genere()),
+                          filtro.stato() == null ? null : List.of(filtro.stato()));
+        int[] candidati;
+        if (conAnni && (facette == null || anni.conta(filtro.annoMin(), filtro.annoMax()) < facette.cardinalita())) {
+            candidati = anni.intervallo(filtro.annoMin(), filtro.annoMax());
+        } else if (facette != null) {
+            candidati = facette.comeArray();
+        } else {
+            return colonne.filtra(filtro);
+        }
+        return colonne.filtra(filtro, candidati);
+    }
+
+    //Id dei libri con anno in [da, a], in ordine di anno
+    public int[] perIntervalloAnni(int da, int a) {
+        return anni.intervallo(da, a);
+    }
+
+    public int contaPerIntervalloAnni(int da, int a) {
+        return anni.conta(da, a);
+    }
+
+    public OptionalInt getAnnoMin() {
+        return anni.annoMin();
+    }
+
+    public OptionalInt getAnnoMax() {
+        return anni.annoMax();
+    }
+
+    //Tutti gli id in ordine di anno (a parità di anno per ISBN), dalla visita dell'indice
+    public int[] idPerAnno() {
+        return colonne.ordinaStessoAnno(anni.tutti());
+    }
+
+    //Id dei libri con uno dei generi E uno degli stati indicati (null o vuoto = nessun vincolo su quella voce)
+    public int[] perFacette(Collection<String> generi, Collection<Libro.StatoLettura> stati) {
+        BitmapCompressa risultato = facette(generi, stati);
+        return risultato == null ? colonne.filtra(FiltroLibri.tutti()) : risultato.comeArray();
+    }
+
+    //Numero di libri che soddisfano le facette, senza estrarre gli id
+    public int contaPerFacette(Collection<String> generi, Collection<Libro.StatoLettura> stati) {
+        BitmapCompressa risultato = facette(generi, stati);
+        return risultato == null ? size() : risultato.cardinalita();
+    }
+
+    private BitmapCompressa facette(Collection<String> generi, Collection<Libro.StatoLettura> stati) {
+        BitmapCompressa perGeneri = null;
+        if (generi != null && !generi.isEmpty()) {
+            perGeneri = new BitmapCompressa();
+            for (String genere : generi) {
+                BitmapCompressa b = bitmapGenere.get(genere);
+                if (b != null) {
+                    perGeneri = BitmapCompressa.unione(perGeneri, b);
+                }
+            }
+        }
+        BitmapCompressa perStati = null;
+        if (stati != null && !stati.isEmpty()) {
+            perStati = new BitmapCompressa();
+            for (Libro.StatoLettura stato : stati) {
+                perStati = BitmapCompressa.unione(perStati, bitmapStato[stato.ordinal()]);
+            }
+        }
+        if (perGeneri == null || perStati == null) {
+            return perGeneri != null ? perGeneri : perStati;
+        }
+        return BitmapCompressa.intersezione(perGeneri, perStati);
+    }
+
+    //Gli stessi id ordinati per anno di pubblicazione e a parità di anno per ISBN, come con OrdPerAnno
+    public int[] ordinaPerAnno(int[] ids) {
+        return colonne.ordinaPerAnno(ids);
+    }
+
+    //Conteggi per stato, generi e anni estremi, senza scorrere il catalogo
+    public StatisticheLibreria getStatistiche() {
+        return aggregati.istantanea(anni.annoMin(), anni.annoMax());
+    }
+
+    /* ───────────────────  AGGIORNAMENTO (solo da Libreria)  ─────────────────── */
+
+    void aggiungi(Libro libro) {
+        if (idDi(libro.getIsbn()) >= 0) {
+            rimuovi(libro);
+        }
+        int id = nuovoId();
+        perId.set(id, libro);
+        long chiave = ISBN.chiave(libro.getIsbn());
+        if (chiave != ISBN.NESSUNA_CHIAVE) {
+            idPerChiave.put(chiave, id);
+        } else {
+            idPerCodice.put(normalizzaIsbn(libro.getIsbn()), id);
+        }
+        trigrammiTitolo.aggiungi(id, libro.getTitolo());
+        trigrammiAutore.aggiungi(id, libro.getAutore());
+        aggregati.aggiungi(libro);
+        colonne.imposta(id, libro);
+        bitmapGenere.computeIfAbsent(libro.getGenere(), g -> new BitmapCompressa()).aggiungi(id);
+        if (libro.getStatoLettura() != null) {
+            bitmapStato[libro.getStatoLettura().ordinal()].aggiungi(id);
+        }
+        anni.aggiungi(id, libro.getAnnoPubblicazione());
+    }
+
+    void rimuovi(Libro libro) {
+        long chiave = ISBN.chiave(libro.getIsbn());
+        int id;
+        if (chiave != ISBN.NESSUNA_CHIAVE) {
+            id = idPerChiave.rimuovi(chiave, -1);
+        } else {
+            Integer trovato = idPerCodice.remove(normalizzaIsbn(libro.getIsbn()));
+            id = trovato == null ? -1 : trovato;
+        }
+        if (id < 0) {
+            return;
+        }
+        Libro indicizzato = perId.get(id); //gli indici secondari contengono i campi della copia indicizzata
+        trigrammiTitolo.rimuovi(id, indicizzato.getTitolo());
+        trigrammiAutore.rimuovi(id, indicizzato.getAutore());
+        aggregati.rimuovi(indicizzato);
+        colonne.rimuovi(id);
+        BitmapCompressa genere = bitmapGenere.get(indicizzato.getGenere());
+        genere.rimuovi(id);
+        if (genere.cardinalita() == 0) {
+            bitmapGenere.remove(indicizzato.getGenere());
+        }
+        if (indicizzato.getStatoLettura() != null) {
+            bitmapStato[indicizzato.getStatoLettura().ordinal()].rimuovi(id);
+        }
+        anni.rimuovi(id, indicizzato.getAnnoPubblicazione());
+        perId.set(id, null);
+        liberaId(id);
+    }
+
+    void sostituisci(Libro libroV, Libro libroN) {
+        rimuovi(libroV);
+        aggiungi(libroN);
+    }
+
+    void ricostruisci(Collection<Libro> libri) {
+        idPerChiave.svuota();
+        idPerCodice.clear();
+        perId.clear();
+        numIdLiberi = 0;
+        trigrammiTitolo.svuota();
+        trigrammiAutore.svuota();
+        aggregati.svuota();
+        colonne.svuota();
+        bitmapGenere.clear();
+        anni.svuota();
+        for (int i = 0; i < bitmapStato.length; i++) {
+            bitmapStato[i] = new BitmapCompressa();
+        }
+        for (Libro libro : libri) {
+            aggiungi(libro);
+        }
+    }
+
+    //Id del libro con questo ISBN, -1 se non è indicizzato
+    private int idDi(String isbn) {
+        long chiave = ISBN.chiave(isbn);
+        if (chiave != ISBN.NESSUNA_CHIAVE) {
+            return idPerChiave.get(chiave, -1);
+        }
+        Integer id = idPerCodice.get(normalizzaIsbn(isbn));
+        return id == null ? -1 : id;
+    }
+
+    private int nuovoId() {
+        if (numIdLiberi > 0) {
+            return idLiberi[--numIdLiberi];
+        }
+        perId.add(null);
+        return perId.size() - 1;
+    }
+
+    private void liberaId(int id) {
+        if (numIdLiberi == idLiberi.length) {
+            idLiberi = Arrays.copyOf(idLiberi, numIdLiberi * 2);
+        }
+        idLiberi[numIdLiberi++] = id;
+    }
+}
@@ -1,126 +1,629 @@
 package model;
 
+import is.strategy.OrdPerAnno;
 import is.strategy.OrdPerTitolo;
 import is.strategy.RicPerTitolo;
+import observer.Modifica;
 import observer.Observer;
+import persistence.SalvataggioAsincrono;
 import persistence.SingletonJSON;
 import is.strategy.RicStrategy;
 import is.strategy.OrdStrategy;
 import observer.Subject;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 
-public class Libreria implements Subject {
-    private List<Libro> libri;
+public final class Libreria implements Subject {
     private final SingletonJSON singletonJSON;
-    private OrdStrategy ordStrategy;
-    private RicStrategy ricStrategy;
+    private volatile RicStrategy ricStrategy;
     private final List<Observer> observers;
+    private final IndiciLibreria indici;
+    private final SalvataggioAsincrono salvataggio;
+    //I salvataggi avvengono in background: i loro errori arrivano qui invece che al chiamante della modifica
+    private volatile Consumer<Throwable> gestoreErroriSalvataggio =
+            e -> System.err.println("Errore durante il salvataggio della libreria: " + e.getMessage());
+    private CompletableFuture<Void> salvataggioSorvegliato; //scrittura raggruppata a cui è già agganciato il gestore
+    private boolean chiusa; //dopo chiudi le modifiche non potrebbero più essere salvate: vengono rifiutate
+
+    //Stato pubblicato per i lettori: cambia solo per sostituzione dopo ogni modifica
+    private volatile Istantanea istantanea;
+    //Protegge gli indici, che gli scrittori modificano sul posto: scrittori in scrittura, ricerche in lettura
+    private final StampedLock lockIndici = new StampedLock();
+    //Le ricerche che scorrono il catalogo lo dividono a blocchi sul pool di RicercaParallela
+    private volatile boolean ricercaParallela;
+    //Risultati delle ricerche ripetute, validi finché la versione dell'istantanea non cambia
+    private final CacheRicerche cache = new CacheRicerche(CAPACITA_CACHE);
+    private static final int CAPACITA_CACHE = 128;
+
+    private record ChiaveRicerca(Class<?> tipo, Object criteri) {}
+
+    //Versione immutabile della libreria: lista ordinata, criterio con cui è ordinata e dati aggregati
+    private record Istantanea(ListaPersistente<Libro> libri, OrdStrategy ordStrategy,
+                              StatisticheLibreria statistiche, long versione) {}
 
 
     public Libreria() {
         this.singletonJSON = SingletonJSON.getInstance();
-        this.libri = new ArrayList<>(singletonJSON.leggiDaLibreria());
-        this.ordStrategy = new OrdPerTitolo();
         this.ricStrategy = new RicPerTitolo();
         this.observers = new ArrayList<>();
-
+        this.indici = new IndiciLibreria();
+        this.istantanea = new Istantanea(ListaPersistente.vuota(), new OrdPerTitolo(), indici.getStatistiche(), 0);
+        this.salvataggio = new SalvataggioAsincrono(this::getLibri, singletonJSON::salvaInLibreria);
+        ricarica(singletonJSON.leggiDaLibreria(), istantanea.ordStrategy());
     }
 
-    public void attach(Observer observer) {
+    public synchronized void attach(Observer observer) {
         if (observer != null && !observers.contains(observer)) {
             observers.add(observer);
-            observer.update(libri);
+            observer.update(istantanea.libri());
         }
     }
 
-    public void detach(Observer observer) {
+    public synchronized void detach(Observer observer) {
         observers.remove(observer);
     }
 
 
-    public void notifyObservers() {
+    //Notifica completa (RESET): chi non gestisce gli eventi riceve la lista come prima
+    public synchronized void notifyObservers() {
+        notificaModifica(Modifica.reset(istantanea.libri()));
+    }
+
+    //Invia agli observer solo la modifica appena fatta
+    private void notificaModifica(Modifica modifica) {
+        List<Libro> libri = istantanea.libri();
         for (Observer observer : observers) {
-            observer.update(libri);
+            observer.aggiorna(modifica, libri);
         }
     }
 
 
+    //Il riordino completo avviene solo qui: aggiunte e modifiche mantengono l'ordine in modo incrementale
     public synchronized void setOrdStrategy(OrdStrategy ordSt) {
-        this.ordStrategy = ordSt;
-        ordinaLib();
+        riordina(ordSt);
+        notifyObservers();
     }
 
     public synchronized void ordinaLib() {
-        ordStrategy.ordina(libri);
+        riordina(istantanea.ordStrategy());
         notifyObservers();
     }
 
-    public synchronized void setRicStrategy(RicStrategy ricSt) {
+    public void setRicStrategy(RicStrategy ricSt) {
         this.ricStrategy = ricSt;
     }
 
-    public synchronized List<Libro> cercaLib(String criterio) {
-        return ricStrategy.cerca(libri, criterio);
+    public void setRicercaParallela(boolean attiva) {
+        this.ricercaParallela = attiva;
+    }
+
+    public boolean isRicercaParallela() {
+        return ricercaParallela;
+    }
+
+    public List<Libro> cercaLib(String criterio) {
+        return cercaLib(criterio, null);
+    }
+
+    //Le strategie a scansione lavorano sull'istantanea corrente senza lock; quelle che usano gli indici
+    //li leggono con il lock in lettura, insieme all'istantanea a cui sono allineati.
+    //Le strategie a scansione vengono eseguite con la loro condizione (a blocchi in modalità parallela);
+    //con annullamento non null la ricerca può essere interrotta da un altro thread (CancellationException)
+    //I risultati delle strategie che danno una chiave di cache vengono riusati finché la libreria non cambia.
+    //Come per tutte le ricerche e i filtri, la lista restituita non è modificabile (anche senza cache)
+    public List<Libro> cercaLib(String criterio, RicercaParallela.Annullamento annullamento) {
+        return cercaLib(ricStrategy, criterio, annullamento);
+    }
+
+    //Ricerca con una strategia indicata, senza cambiare quella della libreria: per chi cerca
+    //da un altro thread (ad esempio la ricerca durante la digitazione) mentre la GUI usa la libreria
+    public List<Libro> cercaLib(RicStrategy strategia, String criterio, RicercaParallela.Annullamento annullamento) {
+        Object criteri = strategia.chiaveCache(criterio);
+        if (criteri != null) {
+            return conCache(new ChiaveRicerca(strategia.getClass(), criteri), () -> cercaSenzaCache(strategia, criterio, annullamento));
+        }
+        return Collections.unmodifiableList(cercaSenzaCache(strategia, criterio, annullamento));
+    }
+
+    private List<Libro> cercaSenzaCache(RicStrategy strategia, String criterio, RicercaParallela.Annullamento annullamento) {
+        return ricerca(annullamento, () -> {
+            Predicate<Libro> condizione = strategia.condizione(criterio);
+            if (condizione != null) {
+                return RicercaParallela.filtra(istantanea.libri(), condizione); //la lista è già nell'ordine della libreria
+            }
+            return leggiIndici((indici, corrente) ->
+                    ordinaRisultati(strategia, corrente, strategia.cerca(indici, corrente.libri(), criterio)));
+        });
+    }
+
+    public List<Libro> filtra(FiltroLibri filtro) {
+        return filtra(filtro, null);
+    }
+
+    //Filtro su genere, stato, anni e valutazione eseguito sulle colonne primitive degli indici:
+    //i libri vengono recuperati solo per gli id che passano il filtro, nell'ordine della libreria.
+    //La lista restituita non è modificabile
+    public List<Libro> filtra(FiltroLibri filtro, RicercaParallela.Annullamento annullamento) {
+        return conCache(new ChiaveRicerca(FiltroLibri.class, filtro), () -> ricerca(annullamento,
+                () -> leggiIndici((indici, corrente) -> libriOrdinati(indici.filtra(filtro), corrente))));
+    }
+
+    //Numero massimo di ricerche tenute in cache (0 la disattiva), ad esempio per misurare le strategie senza cache
+    public void setCapacitaCache(int capacita) {
+        cache.setCapacita(capacita);
+    }
+
+    //Successi e mancati della cache delle ricerche dalla creazione della libreria
+    public CacheRicerche.Statistiche getStatisticheCache() {
+        return cache.statistiche();
+    }
+
+    //Risultato dalla cache se calcolato sulla versione corrente, altrimenti calcolato e memorizzato;
+    //si memorizza solo se nessuna modifica è stata pubblicata durante il calcolo.
+    //La lista non è modificabile, perché può essere condivisa tra più chiamanti
+    private List<Libro> conCache(ChiaveRicerca chiave, Supplier<List<Libro>> calcolo) {
+        long versione = istantanea.versione();
+        List<Libro> trovato = cache.cerca(chiave, versione);
+        if (trovato != null) {
+            return trovato;
+        }
+        List<Libro> risultato = Collections.unmodifiableList(calcolo.get());
+        if (istantanea.versione() == versione) {
+            cache.memorizza(chiave, versione, risultato);
+        }
+        return risultato;
+    }
+
+    private <T> T ricerca(RicercaParallela.Annullamento annullamento, Supplier<T> ricerca) {
+        return RicercaParallela.esegui(annullamento, ricercaParallela, ricerca);
+    }
+
+    //Filtro a facette: OR tra i generi indicati, OR tra gli stati indicati, AND tra le due voci,
+    //calcolato con le bitmap degli indici (null o vuoto = nessun vincolo). La lista restituita non è modificabile
+    public List<Libro> filtraPerFacette(Collection<String> generi, Collection<Libro.StatoLettura> stati) {
+        return Collections.unmodifiableList(
+                leggiIndici((indici, corrente) -> libriOrdinati(indici.perFacette(generi, stati), corrente)));
+    }
+
+    //Conteggio a facette: solo la cardinalità delle bitmap, nessun libro estratto
+    public int contaPerFacette(Collection<String> generi, Collection<Libro.StatoLettura> stati) {
+        return leggiIndici((indici, corrente) -> indici.contaPerFacette(generi, stati));
+    }
+
+    //Una pagina della lista completa, a partire dal libro dopo il cursore (null = dall'inizio)
+    public Pagina getPagina(int dimensione, Pagina.Cursore dopo) {
+        Istantanea corrente = istantanea;
+        return pagina(corrente.libri(), corrente.ordStrategy(), dimensione, dopo);
+    }
+
+    //Una pagina dei risultati della strategia di ricerca corrente. Le strategie che scorrono la lista
+    //ripartono dal cursore e si fermano appena la pagina è piena, stimando il totale dalla parte esaminata;
+    //quelle che partono dagli indici calcolano i risultati (già ristretti ai candidati) e ne tagliano la pagina
+    public Pagina cercaPagina(String criterio, int dimensione, Pagina.Cursore dopo) {
+        RicStrategy strategia = ricStrategy;
+        Predicate<Libro> condizione = strategia.condizione(criterio);
+        if (condizione == null) {
+            return pagina(cercaLib(criterio), istantanea.ordStrategy(), dimensione, dopo);
+        }
+        if (dimensione <= 0) {
+            throw new IllegalArgumentException("Dimensione della pagina non valida: " + dimensione);
+        }
+        Istantanea corrente = istantanea;
+        List<Libro> libri = corrente.libri();
+        int da = inizioPagina(libri, corrente.ordStrategy(), dopo);
+        List<Libro> trovati = new ArrayList<>(dimensione);
+        int ultimaPos = -1;
+        int i = da;
+        boolean altri = false;
+        for (; i < libri.size(); i++) {
+            Libro libro = libri.get(i);
+            if (condizione.test(libro)) {
+                if (trovati.size() == dimensione) {
+                    altri = true; //basta sapere che ce n'è almeno un altro
+                    break;
+                }
+                trovati.add(libro);
+                ultimaPos = i;
+            }
+        }
+        int esaminati = i - da;
+        boolean esatto = da == 0 && !altri;
+        int totale = esatto || esaminati == 0 ? trovati.size() + (altri ? 1 : 0)
+                : (int) Math.round((double) (trovati.size() + (altri ? 1 : 0)) / esaminati * libri.size());
+        Pagina.Cursore successivo = altri ? new Pagina.Cursore(trovati.get(trovati.size() - 1), ultimaPos, corrente.ordStrategy()) : null;
+        return new Pagina(trovati, successivo, totale, esatto);
+    }
+
+    //Taglia una pagina da una lista ordinata con ordStrategy, di cui si conosce il totale esatto
+    private Pagina pagina(List<Libro> libri, OrdStrategy ordStrategy, int dimensione, Pagina.Cursore dopo) {
+        if (dimensione <= 0) {
+            throw new IllegalArgumentException("Dimensione della pagina non valida: " + dimensione);
+        }
+        int da = inizioPagina(libri, ordStrategy, dopo);
+        int a = Math.min(libri.size(), da + dimensione);
+        Pagina.Cursore successivo = a < libri.size() ? new Pagina.Cursore(libri.get(a - 1), a - 1, ordStrategy) : null;
+        return new Pagina(new ArrayList<>(libri.subList(da, a)), successivo, libri.size(), true);
+    }
+
+    //Prima posizione dopo il libro del cursore: se la lista non è cambiata lo si trova dov'era,
+    //altrimenti con la ricerca binaria; se nel frattempo è stato tolto o modificato si riparte
+    //da dove sarebbe stato inserito. L'ordine è totale (a parità di criterio decide l'ISBN),
+    //quindi anche tra libri equivalenti quel punto separa quelli già restituiti dagli altri
+    private int inizioPagina(List<Libro> libri, OrdStrategy ordStrategy, Pagina.Cursore dopo) {
+        if (dopo == null) {
+            return 0;
+        }
+        if (dopo.ordinamento != ordStrategy.getClass()) {
+            throw new IllegalStateException("Cursore non più valido: l'ordinamento della libreria è cambiato");
+        }
+        if (dopo.posizione < libri.size() && libri.get(dopo.posizione) == dopo.ultimo) {
+            return dopo.posizione + 1;
+        }
+        int pos = ordStrategy.posizione(libri, dopo.ultimo);
+        return pos >= 0 ? pos + 1 : ordStrategy.posizioneInserimento(libri, dopo.ultimo);
+    }
+
+    //Libri degli id indicati, nell'ordine della libreria
+    private List<Libro> libriOrdinati(int[] ids, Istantanea corrente) {
+        if (corrente.ordStrategy() instanceof OrdPerAnno) {
+            return libriDi(indici.ordinaPerAnno(ids));
+        }
+        List<Libro> libri = libriDi(ids);
+        corrente.ordStrategy().ordina(libri);
+        return libri;
+    }
+
+    //Esegue la lettura degli indici con il lock in lettura: gli scrittori li modificano sul posto,
+    //quindi restano fuori finché la lettura non è finita (più letture possono procedere insieme).
+    //Solo le ricerche a scansione, che leggono l'istantanea, non aspettano mai; quelle sugli indici
+    //aspettano lo scrittore in corso: una lettura ottimistica validata alla fine non basta, perché
+    //indici modificati a metà possono lanciare eccezioni o dare risultati incoerenti prima della validazione.
+    //L'istantanea passata è quella pubblicata insieme allo stato corrente degli indici
+    private <T> T leggiIndici(BiFunction<IndiciLibreria, Istantanea, T> lettura) {
+        long stamp = lockIndici.readLock();
+        try {
+            return lettura.apply(indici, istantanea);
+        } finally {
+            lockIndici.unlockRead(stamp);
+        }
+    }
+
+    private List<Libro> libriDi(int[] ids) {
+        List<Libro> libri = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            libri.add(indici.libro(id));
+        }
+        return libri;
+    }
+
+    private List<Libro> ordinaRisultati(RicStrategy strategia, Istantanea corrente, List<Libro> risultati) {
+        if (!strategia.mantieneOrdine()) {
+            corrente.ordStrategy().ordina(risultati); //stesso ordine della lista completa
+        }
+        return risultati;
     }
 
     //cambiato il metodo aggiungi, per gestire l'ISBN dublicato, con conseguente cambiamento anche in DialogManager
+    //il controllo del duplicato passa dall'indice per ISBN invece di scorrere la lista
     public synchronized boolean aggiungiLibro(Libro libro) {
-        if(libri.contains(libro)) {
+        controllaAperta();
+        if(indici.contieneIsbn(libro.getIsbn())) {
             return false;
         }
-        this.libri.add(libro);
-        salvaLib();
-        ordinaLib();
+        ListaPersistente<Libro> libri = istantanea.libri();
+        int pos = istantanea.ordStrategy().posizioneInserimento(libri, libro); //ricerca binaria invece di riordinare tutta la lista
+        long stamp = lockIndici.writeLock();
+        try {
+            indici.aggiungi(libro);
+            pubblica(libri.conInserito(pos, libro), istantanea.ordStrategy());
+        } finally {
+            lockIndici.unlockWrite(stamp);
+        }
+        persisti(() -> sorveglia(singletonJSON.registraAggiunta(libro)));
+        notificaModifica(Modifica.aggiunto(libro, pos));
         return true;
     }
 
     public synchronized boolean rimuoviLibro(Libro libro) {
-        boolean rimosso = this.libri.remove(libro);
-        if (rimosso) {
-            salvaLib();
-            notifyObservers();
+        controllaAperta();
+        Libro presente = indici.perIsbn(libro.getIsbn());
+        if (presente == null) {
+            return false;
+        }
+        int pos = posizioneDi(presente);
+        long stamp = lockIndici.writeLock();
+        try {
+            indici.rimuovi(presente);
+            pubblica(istantanea.libri().conRimosso(pos), istantanea.ordStrategy());
+        } finally {
+            lockIndici.unlockWrite(stamp);
         }
-        return rimosso;
+        persisti(() -> sorveglia(singletonJSON.registraRimozione(presente)));
+        notificaModifica(Modifica.rimosso(presente, pos));
+        return true;
     }
 
     //cambiato il metodo modificaLibro, per gestire l'ISBN dublicato, con conseguente cambiamento anche in DialogManager
     public synchronized boolean modificaLibro(Libro libroV, Libro libroN) {
-        int i = libri.indexOf(libroV);
-
-        boolean isbnGiaPresente = libri.stream().anyMatch(l -> !l.equals(libroV) && l.getIsbn().equalsIgnoreCase(libroN.getIsbn()));
-        if (i != -1) {
-            if (!isbnGiaPresente) {
-                libri.set(i, libroN);
-                salvaLib();
-                ordinaLib();
-                return true;
-                //notifyObservers(); non serve più perchè il metodo ordinaLib() chiama già notifyObservers()
+        controllaAperta();
+        Libro presente = indici.perIsbn(libroV.getIsbn());
+        if (presente == null) {
+            return false;
+        }
+
+        Libro conStessoIsbn = indici.perIsbn(libroN.getIsbn());
+        boolean isbnGiaPresente = conStessoIsbn != null && conStessoIsbn != presente;
+        if (!isbnGiaPresente) {
+            OrdStrategy ordStrategy = istantanea.ordStrategy();
+            int i = posizioneDi(presente);
+            ListaPersistente<Libro> senza = istantanea.libri().conRimosso(i);
+            int pos = ordStrategy.posizioneInserimento(senza, libroN); //sposta solo il libro modificato
+            long stamp = lockIndici.writeLock();
+            try {
+                indici.sostituisci(presente, libroN);
+                pubblica(pos == i ? istantanea.libri().conSostituito(i, libroN) : senza.conInserito(pos, libroN), ordStrategy);
+            } finally {
+                lockIndici.unlockWrite(stamp);
             }
+            persisti(() -> sorveglia(singletonJSON.registraModifica(presente, libroN)));
+            notificaModifica(pos == i ? Modifica.aggiornato(libroN, i) : Modifica.spostato(libroN, i, pos));
+            return true;
         }
         return false;
     }
 
+    //Applica insieme tutte le operazioni registrate nella transazione: ognuna viene convalidata
+    //con le stesse regole dei metodi singoli (tenendo conto delle operazioni precedenti del lotto),
+    //poi indici e lista vengono aggiornati in un'unica pubblicazione, la lista viene riordinata
+    //una volta, si salva una volta e gli observer ricevono una sola notifica.
+    //Restituisce l'esito di ogni operazione, nell'ordine in cui è stata registrata.
+    //Se il blocco lancia un'eccezione non viene applicato nulla.
+    public synchronized List<Boolean> inBatch(Consumer<Transazione> operazioni) {
+        controllaAperta();
+        Transazione tx = new Transazione();
+        operazioni.accept(tx);
+
+        // convalida: lo stato dopo le operazioni già accettate sta in "lotto" (null = rimosso)
+        Map<String, Libro> lotto = new HashMap<>();
+        List<Boolean> esiti = new ArrayList<>(tx.size());
+        List<Transazione.Operazione> accettate = new ArrayList<>();
+        for (Transazione.Operazione op : tx.operazioni()) {
+            Transazione.Operazione accettata = switch (op.tipo()) {
+                case AGGIUNTA -> presenteNelLotto(lotto, op.nuovo().getIsbn()) == null ? op : null;
+                case RIMOZIONE -> {
+                    Libro presente = presenteNelLotto(lotto, op.vecchio().getIsbn());
+                    yield presente == null ? null : new Transazione.Operazione(op.tipo(), presente, null);
+                }
+                case MODIFICA -> {
+                    Libro presente = presenteNelLotto(lotto, op.vecchio().getIsbn());
+                    Libro conStessoIsbn = presenteNelLotto(lotto, op.nuovo().getIsbn());
+                    yield presente == null || (conStessoIsbn != null && conStessoIsbn != presente) ? null
+                            : new Transazione.Operazione(op.tipo(), presente, op.nuovo());
+                }
+            };
+            esiti.add(accettata != null);
+            if (accettata != null) {
+                accettate.add(accettata);
+                if (accettata.vecchio() != null) {
+                    lotto.put(IndiciLibreria.normalizzaIsbn(accettata.vecchio().getIsbn()), null);
+                }
+                if (accettata.nuovo() != null) {
+                    lotto.put(IndiciLibreria.normalizzaIsbn(accettata.nuovo().getIsbn()), accettata.nuovo());
+                }
+            }
+        }
+        if (accettate.isEmpty()) {
+            return esiti;
+        }
+
+        // applicazione: indici aggiornati operazione per operazione, lista ricostruita e ordinata una volta
+        Set<Libro> tolti = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Libro> aggiunti = Collections.newSetFromMap(new IdentityHashMap<>());
+        OrdStrategy ordStrategy = istantanea.ordStrategy();
+        long stamp = lockIndici.writeLock();
+        try {
+            for (Transazione.Operazione op : accettate) {
+                switch (op.tipo()) {
+                    case AGGIUNTA -> indici.aggiungi(op.nuovo());
+                    case RIMOZIONE -> indici.rimuovi(op.vecchio());
+                    case MODIFICA -> indici.sostituisci(op.vecchio(), op.nuovo());
+                }
+                if (op.vecchio() != null && !aggiunti.remove(op.vecchio())) {
+                    tolti.add(op.vecchio());
+                }
+                if (op.nuovo() != null) {
+                    aggiunti.add(op.nuovo());
+                }
+            }
+            List<Libro> libri;
+            if (ordStrategy instanceof OrdPerAnno && indici.size() == istantanea.libri().size() - tolti.size() + aggiunti.size()) {
+                libri = libriDi(indici.idPerAnno());
+            } else {
+                libri = new ArrayList<>(istantanea.libri().size() - tolti.size() + aggiunti.size());
+                for (Libro libro : istantanea.libri()) {
+                    if (!tolti.contains(libro)) {
+                        libri.add(libro);
+                    }
+                }
+                libri.addAll(aggiunti);
+                ordStrategy.ordina(libri);
+            }
+            pubblica(ListaPersistente.di(libri), ordStrategy);
+        } finally {
+            lockIndici.unlockWrite(stamp);
+        }
+
+        persisti(() -> {
+            for (Transazione.Operazione op : accettate) {
+                switch (op.tipo()) {
+                    case AGGIUNTA -> sorveglia(singletonJSON.registraAggiunta(op.nuovo()));
+                    case RIMOZIONE -> sorveglia(singletonJSON.registraRimozione(op.vecchio()));
+                    case MODIFICA -> sorveglia(singletonJSON.registraModifica(op.vecchio(), op.nuovo()));
+                }
+            }
+        });
+        notifyObservers();
+        return esiti;
+    }
+
+    //Libro con questo ISBN tenendo conto delle operazioni già accettate nel lotto
+    private Libro presenteNelLotto(Map<String, Libro> lotto, String isbn) {
+        String chiave = IndiciLibreria.normalizzaIsbn(isbn);
+        return lotto.containsKey(chiave) ? lotto.get(chiave) : indici.perIsbn(isbn);
+    }
+
+    //Posizione nella lista dell'istanza indicizzata: ricerca binaria sulla lista ordinata,
+    //con una scansione per riferimento come rete di sicurezza
+    private int posizioneDi(Libro libro) {
+        List<Libro> libri = istantanea.libri();
+        int pos = istantanea.ordStrategy().posizione(libri, libro);
+        if (pos >= 0) {
+            return pos;
+        }
+        for (int i = 0; i < libri.size(); i++) {
+            if (libri.get(i) == libro) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Indice ISBN non allineato alla lista dei libri");
+    }
+
+    //Pubblica la nuova versione; va chiamato con il lock degli indici in scrittura,
+    //così chi legge gli indici vede sempre la lista corrispondente
+    private void pubblica(ListaPersistente<Libro> libri, OrdStrategy ordStrategy) {
+        istantanea = new Istantanea(libri, ordStrategy, indici.getStatistiche(), istantanea.versione() + 1);
+    }
+
+    private void riordina(OrdStrategy ordStrategy) {
+        List<Libro> ordinati;
+        if (ordStrategy instanceof OrdPerAnno && indici.size() == istantanea.libri().size()) {
+            ordinati = libriDi(indici.idPerAnno()); //visita dell'indice degli anni, già in ordine
+        } else {
+            ordinati = new ArrayList<>(istantanea.libri());
+            ordStrategy.ordina(ordinati);
+        }
+        long stamp = lockIndici.writeLock();
+        try {
+            pubblica(ListaPersistente.di(ordinati), ordStrategy);
+        } finally {
+            lockIndici.unlockWrite(stamp);
+        }
+    }
+
+    private void ricarica(List<Libro> caricati, OrdStrategy ordStrategy) {
+        ordStrategy.ordina(caricati); //da qui in poi la lista resta ordinata ad ogni modifica
+        long stamp = lockIndici.writeLock();
+        try {
+            indici.ricostruisci(caricati);
+            pubblica(ListaPersistente.di(caricati), ordStrategy);
+        } finally {
+            lockIndici.unlockWrite(stamp);
+        }
+    }
+
 
     public synchronized void salvaLib(){
-        singletonJSON.salvaInLibreria(libri);
+        singletonJSON.salvaInLibreria(istantanea.libri());
     }
 
-    public synchronized void caricaLib(){
-        this.libri = new ArrayList<>(singletonJSON.leggiDaLibreria());
-        notifyObservers();
+    //In modalità journal registra solo la singola modifica (compattando ogni tanto il giornale),
+    //altrimenti segna la libreria da salvare: la riscrittura completa avviene in background,
+    //una sola volta per ogni raffica di modifiche
+    private void persisti(Runnable registrazione) {
+        if (singletonJSON.isJournalAttivo()) {
+            registrazione.run();
+            if (singletonJSON.checkpointNecessario()) {
+                sorveglia(singletonJSON.checkpoint(istantanea.libri()));
+            }
+        } else {
+            CompletableFuture<Void> scrittura = salvataggio.segnaModificata();
+            if (scrittura != salvataggioSorvegliato) { //una raffica di modifiche condivide la stessa scrittura
+                salvataggioSorvegliato = scrittura;
+                sorveglia(scrittura);
+            }
+        }
+    }
+
+    //Va controllato prima di toccare indici e lista: una modifica pubblicata ma non salvata
+    //lascerebbe la libreria in memoria diversa dal file e gli observer non notificati
+    private void controllaAperta() {
+        if (chiusa) {
+            throw new IllegalStateException("Libreria già chiusa: la modifica non viene applicata");
+        }
     }
 
+    //Passa al gestore l'eventuale errore della scrittura in background
+    private void sorveglia(CompletableFuture<?> scrittura) {
+        scrittura.whenComplete((esito, errore) -> {
+            if (errore != null) {
+                gestoreErroriSalvataggio.accept(errore instanceof CompletionException ? errore.getCause() : errore);
+            }
+        });
+    }
 
-    public synchronized List<Libro> getLibri() {
-        return new ArrayList<>(libri);
+    //Chi deve sapere dei salvataggi in background non riusciti (la GUI mostra un messaggio);
+    //per impostazione predefinita l'errore viene scritto su System.err
+    public void setGestoreErroriSalvataggio(Consumer<Throwable> gestore) {
+        this.gestoreErroriSalvataggio = gestore;
     }
 
+    //Finestra entro cui le modifiche vengono raggruppate in un unico salvataggio
+    public void setFinestraSalvataggio(Duration finestra) {
+        salvataggio.setFinestra(finestra);
+    }
 
+    //Future che si completa quando tutte le modifiche fatte fin qui sono su disco
+    public CompletableFuture<Void> flush() {
+        return salvataggio.flush().thenCompose(v -> singletonJSON.flushGiornale());
+    }
 
+    //Scrive le modifiche in sospeso; da chiamare alla chiusura dell'applicazione.
+    //Da qui in poi aggiunte, rimozioni e modifiche lanciano IllegalStateException senza toccare la libreria
+    public void chiudi() {
+        synchronized (this) {
+            chiusa = true; //le modifiche già iniziate finiscono prima che il salvataggio venga chiuso
+        }
+        salvataggio.chiudi();
+        singletonJSON.flushGiornale().join();
+    }
 
+    public synchronized void caricaLib(){
+        ricarica(singletonJSON.leggiDaLibreria(), istantanea.ordStrategy());
+        notifyObservers();
+    }
 
 
+    //Restituisce la versione corrente, immutabile: nessun lock e nessuna copia.
+    //Come i risultati di cercaLib, filtra e filtraPerFacette non si può modificare: per ordinarla
+    //o cambiarla il chiamante ne fa una copia
+    public List<Libro> getLibri() {
+        return istantanea.libri();
+    }
+
+    //Cambia ad ogni modifica pubblicata (aggiunte, rimozioni, modifiche, caricamenti, riordini):
+    //due letture con la stessa versione hanno visto la stessa libreria
+    public long getVersione() {
+        return istantanea.versione();
+    }
+
+    //Dati aggregati mantenuti ad ogni modifica: nessuna copia e nessuna scansione della lista
+    public StatisticheLibreria getStatistiche() {
+        return istantanea.statistiche();
+    }
 }
@@ -1,6 +1,10 @@
 package model;
 
-import java.util.Objects;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Locale;
+
+import util.ISBN;
 
 public class Libro {
     private String titolo;
@@ -11,6 +15,17 @@ public class Libro {
     private int valutazione;
     private StatoLettura statoLettura;
 
+    //Chiavi di ordinamento calcolate una sola volta e invalidate dai setter (transient: non finiscono nel JSON)
+    private transient CollationKey chiaveTitolo;
+    private transient CollationKey chiaveAutore;
+
+    //Collator italiano: ignora maiuscole/minuscole e mette le lettere accentate vicino a quelle semplici
+    private static final Collator COLLATORE = Collator.getInstance(Locale.ITALIAN);
+    static {
+        COLLATORE.setStrength(Collator.SECONDARY);
+        COLLATORE.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+    }
+
     public enum StatoLettura {
         LETTO, DA_LEGGERE, IN_LETTURA
     }
@@ -19,9 +34,9 @@ public class Libro {
 
     public Libro(String titolo, String autore, String isbn, String genere, int annoPubblicazione) {
         this.titolo = titolo;
-        this.autore = autore;
+        this.autore = DizionarioStringhe.autori().interna(autore);
         this.isbn = isbn;
-        this.genere = genere;
+        this.genere = DizionarioStringhe.generi().interna(genere);
         this.annoPubblicazione = annoPubblicazione;
         this.valutazione = 0;
         this.statoLettura = StatoLettura.DA_LEGGERE;
@@ -34,14 +49,41 @@ public class Libro {
 
     public void setTitolo(String titolo) {
         this.titolo = titolo;
+        this.chiaveTitolo = null;
     }
 
     public String getAutore() {
         return autore;
     }
 
+    //Autore e genere passano dal dizionario condiviso: i valori ripetuti usano la stessa istanza
     public void setAutore(String autore) {
-        this.autore = autore;
+        this.autore = DizionarioStringhe.autori().interna(autore);
+        this.chiaveAutore = null;
+    }
+
+    //Chiave di collazione del titolo, confrontabile byte per byte senza rifare il case folding ad ogni confronto
+    public CollationKey getChiaveTitolo() {
+        CollationKey chiave = chiaveTitolo;
+        if (chiave == null) {
+            chiave = chiaveTitolo = chiaveDi(titolo);
+        }
+        return chiave;
+    }
+
+    public CollationKey getChiaveAutore() {
+        CollationKey chiave = chiaveAutore;
+        if (chiave == null) {
+            chiave = chiaveAutore = chiaveDi(autore);
+        }
+        return chiave;
+    }
+
+    //Il Collator non è thread-safe, le chiavi invece sono immutabili
+    private static CollationKey chiaveDi(String testo) {
+        synchronized (COLLATORE) {
+            return COLLATORE.getCollationKey(testo == null ? "" : testo);
+        }
     }
 
     public String getIsbn() {
@@ -57,7 +99,7 @@ public class Libro {
     }
 
     public void setGenere(String genere) {
-        this.genere = genere;
+        this.genere = DizionarioStringhe.generi().interna(genere);
     }
 
     public int getAnnoPubblicazione() {
@@ -118,12 +160,13 @@ public class Libro {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
 
+        //stesso libro se gli ISBN hanno la stessa chiave canonica, trattini e formato 10/13 a parte
         Libro libro = (Libro) obj;
-        return Objects.equals(isbn, libro.isbn);
+        return ISBN.uguali(isbn, libro.isbn);
     }
 
     public int hashCode() {
-        return Objects.hash(isbn);
+        return ISBN.hash(isbn);
     }
 
     public String getLib() {
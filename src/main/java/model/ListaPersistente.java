@@ -0,0 +1,196 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Lista immutabile divisa in blocchi, con modifiche copy-on-write.
+ * Ogni modifica restituisce una nuova lista che ricopia solo il blocco toccato e
+ * l'elenco dei blocchi (circa n/512 riferimenti), condividendo tutti gli altri blocchi
+ * con la versione precedente. Le versioni già pubblicate non cambiano mai, quindi
+ * possono essere lette da più thread senza lock e senza copie.
+ */
+public final class ListaPersistente<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int BLOCCO = 512;
+    private static final int BLOCCO_MAX = 2 * BLOCCO;
+    private static final int BLOCCO_MIN = BLOCCO / 4;
+
+    private static final ListaPersistente<?> VUOTA = new ListaPersistente<>(new Object[0][], new int[0]);
+
+    private final Object[][] blocchi;   //mai modificati dopo la costruzione
+    private final int[] fine;           //fine[k] = numero di elementi nei blocchi da 0 a k
+
+    private ListaPersistente(Object[][] blocchi, int[] fine) {
+        this.blocchi = blocchi;
+        this.fine = fine;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> ListaPersistente<E> vuota() {
+        return (ListaPersistente<E>) VUOTA;
+    }
+
+    public static <E> ListaPersistente<E> di(Collection<? extends E> elementi) {
+        Object[] tutti = elementi.toArray();
+        if (tutti.length == 0) {
+            return vuota();
+        }
+        int n = (tutti.length + BLOCCO - 1) / BLOCCO;
+        Object[][] blocchi = new Object[n][];
+        for (int k = 0; k < n; k++) {
+            blocchi[k] = Arrays.copyOfRange(tutti, k * BLOCCO, Math.min(tutti.length, (k + 1) * BLOCCO));
+        }
+        return new ListaPersistente<>(blocchi, calcolaFine(blocchi));
+    }
+
+    @Override
+    public int size() {
+        return fine.length == 0 ? 0 : fine[fine.length - 1];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Indice " + i + " fuori dai limiti per lunghezza " + size());
+        }
+        int k = blocco(i);
+        return (E) blocchi[k][i - inizio(k)];
+    }
+
+    //Nuova lista con l'elemento inserito in posizione i (0 ≤ i ≤ size)
+    public ListaPersistente<E> conInserito(int i, E elemento) {
+        if (i < 0 || i > size()) {
+            throw new IndexOutOfBoundsException("Indice " + i + " fuori dai limiti per lunghezza " + size());
+        }
+        if (blocchi.length == 0) {
+            return new ListaPersistente<>(new Object[][]{{elemento}}, new int[]{1});
+        }
+        int k = i == size() ? blocchi.length - 1 : blocco(i);
+        int offset = i - inizio(k);
+        Object[] vecchio = blocchi[k];
+        Object[] nuovo = new Object[vecchio.length + 1];
+        System.arraycopy(vecchio, 0, nuovo, 0, offset);
+        nuovo[offset] = elemento;
+        System.arraycopy(vecchio, offset, nuovo, offset + 1, vecchio.length - offset);
+
+        if (nuovo.length > BLOCCO_MAX) {
+            int meta = nuovo.length / 2;
+            return sostituisciBlocchi(k, k + 1, Arrays.copyOfRange(nuovo, 0, meta), Arrays.copyOfRange(nuovo, meta, nuovo.length));
+        }
+        return sostituisciBlocchi(k, k + 1, nuovo);
+    }
+
+    //Nuova lista senza l'elemento in posizione i
+    public ListaPersistente<E> conRimosso(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Indice " + i + " fuori dai limiti per lunghezza " + size());
+        }
+        int k = blocco(i);
+        int offset = i - inizio(k);
+        Object[] vecchio = blocchi[k];
+        Object[] nuovo = new Object[vecchio.length - 1];
+        System.arraycopy(vecchio, 0, nuovo, 0, offset);
+        System.arraycopy(vecchio, offset + 1, nuovo, offset, vecchio.length - offset - 1);
+
+        if (nuovo.length == 0) {
+            return sostituisciBlocchi(k, k + 1);
+        }
+        if (nuovo.length < BLOCCO_MIN && blocchi.length > 1) {
+            //blocco troppo piccolo: si fonde con un vicino (e si ridivide se diventa troppo grande)
+            int primo = k + 1 < blocchi.length ? k : k - 1;
+            Object[] a = primo == k ? nuovo : blocchi[primo];
+            Object[] b = primo == k ? blocchi[k + 1] : nuovo;
+            Object[] unito = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, unito, a.length, b.length);
+            if (unito.length > BLOCCO_MAX) {
+                int meta = unito.length / 2;
+                return sostituisciBlocchi(primo, primo + 2, Arrays.copyOfRange(unito, 0, meta), Arrays.copyOfRange(unito, meta, unito.length));
+            }
+            return sostituisciBlocchi(primo, primo + 2, unito);
+        }
+        return sostituisciBlocchi(k, k + 1, nuovo);
+    }
+
+    //Nuova lista con l'elemento in posizione i sostituito (le dimensioni non cambiano)
+    public ListaPersistente<E> conSostituito(int i, E elemento) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Indice " + i + " fuori dai limiti per lunghezza " + size());
+        }
+        int k = blocco(i);
+        Object[] nuovo = blocchi[k].clone();
+        nuovo[i - inizio(k)] = elemento;
+        Object[][] nuoviBlocchi = blocchi.clone();
+        nuoviBlocchi[k] = nuovo;
+        return new ListaPersistente<>(nuoviBlocchi, fine);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int k = 0;
+            private int j = 0;
+
+            @Override
+            public boolean hasNext() {
+                return k < blocchi.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (k >= blocchi.length) {
+                    throw new NoSuchElementException();
+                }
+                E elemento = (E) blocchi[k][j];
+                if (++j == blocchi[k].length) {
+                    k++;
+                    j = 0;
+                }
+                return elemento;
+            }
+        };
+    }
+
+    //Primo blocco la cui fine supera l'indice
+    private int blocco(int i) {
+        int basso = 0, alto = fine.length - 1;
+        while (basso < alto) {
+            int medio = (basso + alto) >>> 1;
+            if (fine[medio] <= i) {
+                basso = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return basso;
+    }
+
+    private int inizio(int k) {
+        return k == 0 ? 0 : fine[k - 1];
+    }
+
+    //Sostituisce i blocchi [da, a) con quelli indicati
+    private ListaPersistente<E> sostituisciBlocchi(int da, int a, Object[]... nuovi) {
+        Object[][] risultato = new Object[blocchi.length - (a - da) + nuovi.length][];
+        System.arraycopy(blocchi, 0, risultato, 0, da);
+        System.arraycopy(nuovi, 0, risultato, da, nuovi.length);
+        System.arraycopy(blocchi, a, risultato, da + nuovi.length, blocchi.length - a);
+        return new ListaPersistente<>(risultato, calcolaFine(risultato));
+    }
+
+    private static int[] calcolaFine(Object[][] blocchi) {
+        int[] fine = new int[blocchi.length];
+        int totale = 0;
+        for (int k = 0; k < blocchi.length; k++) {
+            totale += blocchi[k].length;
+            fine[k] = totale;
+        }
+        return fine;
+    }
+}
@@ -0,0 +1,130 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Mappa da chiave long a valore int con indirizzamento aperto e scansione lineare:
+ * chiavi e valori stanno in due array primitivi, quindi niente Long/Integer né nodi
+ * per ogni voce. Le rimozioni ricompattano la sequenza invece di lasciare lapidi.
+ * Non accetta Long.MIN_VALUE come chiave (segna le celle vuote).
+ */
+class MappaLongInt {
+
+    private static final long VUOTA = Long.MIN_VALUE;
+
+    private long[] chiavi;
+    private int[] valori;
+    private int size;
+
+    MappaLongInt() {
+        chiavi = vuote(16);
+        valori = new int[16];
+    }
+
+    int get(long chiave, int seAssente) {
+        int maschera = chiavi.length - 1;
+        for (int i = cella(chiave, maschera); ; i = (i + 1) & maschera) {
+            long k = chiavi[i];
+            if (k == chiave) {
+                return valori[i];
+            }
+            if (k == VUOTA) {
+                return seAssente;
+            }
+        }
+    }
+
+    boolean contiene(long chiave) {
+        int maschera = chiavi.length - 1;
+        for (int i = cella(chiave, maschera); ; i = (i + 1) & maschera) {
+            long k = chiavi[i];
+            if (k == chiave) {
+                return true;
+            }
+            if (k == VUOTA) {
+                return false;
+            }
+        }
+    }
+
+    void put(long chiave, int valore) {
+        if ((size + 1) * 4 > chiavi.length * 3) { //fattore di carico massimo 0,75
+            ridimensiona(chiavi.length * 2);
+        }
+        int maschera = chiavi.length - 1;
+        int i = cella(chiave, maschera);
+        while (chiavi[i] != VUOTA && chiavi[i] != chiave) {
+            i = (i + 1) & maschera;
+        }
+        if (chiavi[i] == VUOTA) {
+            chiavi[i] = chiave;
+            size++;
+        }
+        valori[i] = valore;
+    }
+
+    //Toglie la chiave e restituisce il suo valore, seAssente se non c'era
+    int rimuovi(long chiave, int seAssente) {
+        int maschera = chiavi.length - 1;
+        int i = cella(chiave, maschera);
+        while (chiavi[i] != chiave) {
+            if (chiavi[i] == VUOTA) {
+                return seAssente;
+            }
+            i = (i + 1) & maschera;
+        }
+        int valore = valori[i];
+        //le voci successive della stessa sequenza tornano indietro se la cella liberata è sul loro percorso
+        int libera = i;
+        for (int j = (i + 1) & maschera; chiavi[j] != VUOTA; j = (j + 1) & maschera) {
+            int ideale = cella(chiavi[j], maschera);
+            if (((j - ideale) & maschera) >= ((j - libera) & maschera)) {
+                chiavi[libera] = chiavi[j];
+                valori[libera] = valori[j];
+                libera = j;
+            }
+        }
+        chiavi[libera] = VUOTA;
+        size--;
+        return valore;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void svuota() {
+        Arrays.fill(chiavi, VUOTA);
+        size = 0;
+    }
+
+    private void ridimensiona(int capacita) {
+        long[] vecchieChiavi = chiavi;
+        int[] vecchiValori = valori;
+        chiavi = vuote(capacita);
+        valori = new int[capacita];
+        int maschera = capacita - 1;
+        for (int i = 0; i < vecchieChiavi.length; i++) {
+            if (vecchieChiavi[i] != VUOTA) {
+                int j = cella(vecchieChiavi[i], maschera);
+                while (chiavi[j] != VUOTA) {
+                    j = (j + 1) & maschera;
+                }
+                chiavi[j] = vecchieChiavi[i];
+                valori[j] = vecchiValori[i];
+            }
+        }
+    }
+
+    //Mescola i bit della chiave: gli ISBN consecutivi non devono finire in celle consecutive
+    private static int cella(long chiave, int maschera) {
+        long h = chiave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & maschera;
+    }
+
+    private static long[] vuote(int capacita) {
+        long[] chiavi = new long[capacita];
+        Arrays.fill(chiavi, VUOTA);
+        return chiavi;
+    }
+}
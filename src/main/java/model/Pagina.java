@@ -0,0 +1,35 @@
+package model;
+
+import is.strategy.OrdStrategy;
+
+import java.util.List;
+
+/**
+ * Una pagina di libri restituita da {@link Libreria#getPagina} e {@link Libreria#cercaPagina}.
+ * Il cursore per la pagina successiva ricorda l'ultimo libro restituito, non la sua posizione:
+ * aggiunte e rimozioni fatte tra una pagina e l'altra non fanno saltare né ripetere libri.
+ * Il totale è esatto quando la libreria ha potuto contarlo, altrimenti è una stima
+ * ricavata dalla parte di lista già esaminata. Il cursore è null sull'ultima pagina.
+ */
+public record Pagina(List<Libro> libri, Cursore successivo, int totaleStimato, boolean totaleEsatto) {
+
+    public boolean isUltima() {
+        return successivo == null;
+    }
+
+    /**
+     * Posizione nella sequenza ordinata: vale solo con l'ordinamento per cui è stato creato.
+     */
+    public static final class Cursore {
+
+        final Libro ultimo;
+        final int posizione; //posizione dell'ultimo libro quando è stato restituito, per evitare la ricerca binaria
+        final Class<? extends OrdStrategy> ordinamento;
+
+        Cursore(Libro ultimo, int posizione, OrdStrategy ordStrategy) {
+            this.ultimo = ultimo;
+            this.posizione = posizione;
+            this.ordinamento = ordStrategy.getClass();
+        }
+    }
+}
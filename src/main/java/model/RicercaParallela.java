@@ -0,0 +1,197 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Esecuzione delle ricerche a blocchi su un ForkJoinPool dedicato, separato dal pool comune
+ * usato dagli stream del resto dell'applicazione.
+ * Sotto la soglia di elementi la ricerca resta sequenziale (dividere costerebbe più che scorrere);
+ * sopra, la lista viene divisa a metà finché i blocchi non sono abbastanza piccoli e i risultati
+ * vengono riuniti nello stesso ordine della lista, quindi nell'ordine della libreria.
+ * Le ricerche sono parallele solo quando la libreria ha la modalità parallela attiva; una ricerca
+ * avviata con un {@link Annullamento} può essere interrotta da un altro thread.
+ */
+public final class RicercaParallela {
+
+    static final int SOGLIA = 20_000;  //sotto questa dimensione si cerca in sequenza
+    static final int BLOCCO = 4_096;   //dimensione dei blocchi assegnati a un singolo thread
+    private static final int CONTROLLO_ANNULLAMENTO = 1_024;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("ricerca-" + thread.getPoolIndex());
+        return thread;
+    }, null, false);
+
+    //Ricerca in corso sul thread che l'ha avviata: null = nessuna ricerca della libreria
+    private record Contesto(Annullamento annullamento, boolean parallela) {}
+    private static final ThreadLocal<Contesto> CORRENTE = new ThreadLocal<>();
+
+    private RicercaParallela() {}
+
+    /**
+     * Permette di interrompere una ricerca da un altro thread: la ricerca termina con una
+     * CancellationException al primo controllo successivo.
+     */
+    public static final class Annullamento {
+
+        private volatile boolean annullata;
+
+        public void annulla() {
+            annullata = true;
+        }
+
+        public boolean isAnnullata() {
+            return annullata;
+        }
+
+        void controlla() {
+            if (annullata) {
+                throw new CancellationException("Ricerca annullata");
+            }
+        }
+    }
+
+    //Esegue la ricerca sul thread corrente: le chiamate a filtra fatte al suo interno controllano
+    //l'annullamento (se non è null) e, se parallela, dividono le liste sopra la soglia
+    static <T> T esegui(Annullamento annullamento, boolean parallela, Supplier<T> ricerca) {
+        Contesto precedente = CORRENTE.get();
+        CORRENTE.set(new Contesto(annullamento, parallela));
+        try {
+            if (annullamento != null) {
+                annullamento.controlla();
+            }
+            return ricerca.get();
+        } finally {
+            CORRENTE.set(precedente);
+        }
+    }
+
+    //Elementi che soddisfano la condizione, nell'ordine della lista. In parallelo solo dentro
+    //esegui e sopra la soglia; la condizione deve poter essere chiamata da più thread
+    public static <T> List<T> filtra(List<T> elementi, Predicate<? super T> condizione) {
+        Contesto contesto = CORRENTE.get();
+        Annullamento annullamento = contesto == null ? null : contesto.annullamento();
+        if (contesto == null || !contesto.parallela() || elementi.size() < SOGLIA) {
+            return Filtro.filtra(elementi, condizione, annullamento, 0, elementi.size());
+        }
+        return POOL.invoke(new Filtro<>(elementi, condizione, annullamento, 0, elementi.size()));
+    }
+
+    //Come sopra per gli id 0..limite-1 (le colonne degli indici), in ordine di id
+    static int[] filtraId(int limite, IntPredicate condizione) {
+        Contesto contesto = CORRENTE.get();
+        Annullamento annullamento = contesto == null ? null : contesto.annullamento();
+        if (contesto == null || !contesto.parallela() || limite < SOGLIA) {
+            return FiltroId.filtra(condizione, annullamento, 0, limite);
+        }
+        return POOL.invoke(new FiltroId(condizione, annullamento, 0, limite));
+    }
+
+    @SuppressWarnings("serial") //i task non vengono mai serializzati
+    private static final class Filtro<T> extends RecursiveTask<List<T>> {
+
+        private final List<T> elementi;
+        private final Predicate<? super T> condizione;
+        private final Annullamento annullamento;
+        private final int da, a;
+
+        Filtro(List<T> elementi, Predicate<? super T> condizione, Annullamento annullamento, int da, int a) {
+            this.elementi = elementi;
+            this.condizione = condizione;
+            this.annullamento = annullamento;
+            this.da = da;
+            this.a = a;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (annullamento != null) {
+                annullamento.controlla();
+            }
+            if (a - da <= BLOCCO) {
+                return filtra(elementi, condizione, annullamento, da, a);
+            }
+            int medio = (da + a) >>> 1;
+            Filtro<T> sinistra = new Filtro<>(elementi, condizione, annullamento, da, medio);
+            sinistra.fork();
+            List<T> destra = new Filtro<>(elementi, condizione, annullamento, medio, a).compute();
+            List<T> risultati = sinistra.join();
+            risultati.addAll(destra); //prima la metà sinistra: l'ordine della lista resta quello
+            return risultati;
+        }
+
+        static <T> List<T> filtra(List<T> elementi, Predicate<? super T> condizione, Annullamento annullamento, int da, int a) {
+            List<T> risultati = new ArrayList<>();
+            for (int i = da; i < a; i++) {
+                if (annullamento != null && (i - da) % CONTROLLO_ANNULLAMENTO == 0) {
+                    annullamento.controlla();
+                }
+                T elemento = elementi.get(i);
+                if (condizione.test(elemento)) {
+                    risultati.add(elemento);
+                }
+            }
+            return risultati;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class FiltroId extends RecursiveTask<int[]> {
+
+        private final IntPredicate condizione;
+        private final Annullamento annullamento;
+        private final int da, a;
+
+        FiltroId(IntPredicate condizione, Annullamento annullamento, int da, int a) {
+            this.condizione = condizione;
+            this.annullamento = annullamento;
+            this.da = da;
+            this.a = a;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (annullamento != null) {
+                annullamento.controlla();
+            }
+            if (a - da <= BLOCCO) {
+                return filtra(condizione, annullamento, da, a);
+            }
+            int medio = (da + a) >>> 1;
+            FiltroId sinistra = new FiltroId(condizione, annullamento, da, medio);
+            sinistra.fork();
+            int[] destra = new FiltroId(condizione, annullamento, medio, a).compute();
+            int[] prima = sinistra.join();
+            int[] risultati = Arrays.copyOf(prima, prima.length + destra.length);
+            System.arraycopy(destra, 0, risultati, prima.length, destra.length);
+            return risultati;
+        }
+
+        static int[] filtra(IntPredicate condizione, Annullamento annullamento, int da, int a) {
+            int[] risultati = new int[Math.min(16, Math.max(1, a - da))];
+            int n = 0;
+            for (int id = da; id < a; id++) {
+                if (annullamento != null && (id - da) % CONTROLLO_ANNULLAMENTO == 0) {
+                    annullamento.controlla();
+                }
+                if (condizione.test(id)) {
+                    if (n == risultati.length) {
+                        risultati = Arrays.copyOf(risultati, n * 2);
+                    }
+                    risultati[n++] = id;
+                }
+            }
+            return Arrays.copyOf(risultati, n);
+        }
+    }
+}
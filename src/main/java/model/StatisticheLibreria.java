@@ -0,0 +1,59 @@
+package model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Istantanea immutabile dei dati aggregati della libreria (totali, conteggi per stato,
+ * generi presenti, anni estremi). Viene costruita dai contatori tenuti aggiornati ad ogni
+ * modifica, quindi leggerla non richiede di scorrere il catalogo.
+ */
+public final class StatisticheLibreria {
+
+    private final int totale;
+    private final int[] perStato;
+    private final Map<String, Integer> perGenere;
+    private final List<String> generi;
+    private final OptionalInt annoMin;
+    private final OptionalInt annoMax;
+
+    StatisticheLibreria(int totale, int[] perStato, Map<String, Integer> perGenere, List<String> generi,
+                        OptionalInt annoMin, OptionalInt annoMax) {
+        this.totale = totale;
+        this.perStato = perStato;
+        this.perGenere = perGenere;
+        this.generi = generi;
+        this.annoMin = annoMin;
+        this.annoMax = annoMax;
+    }
+
+    public int getTotale() {
+        return totale;
+    }
+
+    public int getNumeroPerStato(Libro.StatoLettura stato) {
+        return perStato[stato.ordinal()];
+    }
+
+    public int getLetti() {
+        return getNumeroPerStato(Libro.StatoLettura.LETTO);
+    }
+
+    //Generi distinti, in ordine alfabetico senza distinzione tra maiuscole e minuscole
+    public List<String> getGeneri() {
+        return generi;
+    }
+
+    public int getNumeroPerGenere(String genere) {
+        return perGenere.getOrDefault(genere, 0);
+    }
+
+    public OptionalInt getAnnoMin() {
+        return annoMin;
+    }
+
+    public OptionalInt getAnnoMax() {
+        return annoMax;
+    }
+}
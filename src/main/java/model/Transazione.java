@@ -0,0 +1,43 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Raccolta di modifiche da applicare insieme con {@link Libreria#inBatch}.
+ * Le operazioni vengono solo registrate: la libreria le convalida e le applica
+ * tutte in una volta, con un solo salvataggio, un solo ordinamento e una sola notifica.
+ */
+public final class Transazione {
+
+    enum Tipo { AGGIUNTA, RIMOZIONE, MODIFICA }
+
+    record Operazione(Tipo tipo, Libro vecchio, Libro nuovo) {}
+
+    private final List<Operazione> operazioni = new ArrayList<>();
+
+    Transazione() {}
+
+    public Transazione aggiungi(Libro libro) {
+        operazioni.add(new Operazione(Tipo.AGGIUNTA, null, libro));
+        return this;
+    }
+
+    public Transazione rimuovi(Libro libro) {
+        operazioni.add(new Operazione(Tipo.RIMOZIONE, libro, null));
+        return this;
+    }
+
+    public Transazione modifica(Libro libroV, Libro libroN) {
+        operazioni.add(new Operazione(Tipo.MODIFICA, libroV, libroN));
+        return this;
+    }
+
+    public int size() {
+        return operazioni.size();
+    }
+
+    List<Operazione> operazioni() {
+        return operazioni;
+    }
+}
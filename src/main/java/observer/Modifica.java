@@ -0,0 +1,41 @@
+package observer;
+
+import model.Libro;
+
+import java.util.List;
+
+/**
+ * Evento di modifica della lista dei libri inviato agli observer.
+ * Descrive solo cosa è cambiato, così chi osserva può aggiornare la propria copia
+ * senza ricostruirla: gli indici si riferiscono alla lista ordinata della libreria.
+ */
+public record Modifica(Tipo tipo, Libro libro, int indice, int daIndice, List<Libro> libri) {
+
+    public enum Tipo {
+        AGGIUNTO,   // libro inserito in posizione indice
+        RIMOSSO,    // libro tolto dalla posizione indice
+        AGGIORNATO, // libro in posizione indice sostituito, senza spostamenti
+        SPOSTATO,   // libro tolto da daIndice e inserito (nella versione nuova) in posizione indice
+        RESET       // la lista è cambiata completamente: libri contiene la nuova lista
+    }
+
+    public static Modifica aggiunto(Libro libro, int indice) {
+        return new Modifica(Tipo.AGGIUNTO, libro, indice, -1, null);
+    }
+
+    public static Modifica rimosso(Libro libro, int indice) {
+        return new Modifica(Tipo.RIMOSSO, libro, indice, -1, null);
+    }
+
+    public static Modifica aggiornato(Libro libro, int indice) {
+        return new Modifica(Tipo.AGGIORNATO, libro, indice, -1, null);
+    }
+
+    public static Modifica spostato(Libro libro, int daIndice, int indice) {
+        return new Modifica(Tipo.SPOSTATO, libro, indice, daIndice, null);
+    }
+
+    public static Modifica reset(List<Libro> libri) {
+        return new Modifica(Tipo.RESET, null, -1, -1, libri);
+    }
+}
@@ -7,4 +7,9 @@ public interface Observer {
     //Pattern Observer
 
     public void update(List<Libro> libri);
+
+    //Notifica di una singola modifica; chi non sa applicare gli eventi riceve la lista completa come prima
+    default void aggiorna(Modifica modifica, List<Libro> libri) {
+        update(libri);
+    }
 }
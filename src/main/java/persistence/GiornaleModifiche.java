@@ -0,0 +1,291 @@
+package persistence;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import model.IndiciLibreria;
+import model.Libro;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Giornale append-only delle modifiche alla libreria.
+ * Ogni mutazione diventa una riga JSON compatta nel segmento corrente
+ * (libreria.json.journal.N); un thread dedicato raccoglie i record in attesa
+ * e li rende durevoli con un solo fsync per gruppo (group commit).
+ * Al checkpoint si passa a un nuovo segmento e quelli precedenti vengono
+ * eliminati una volta scritto lo snapshot.
+ */
+public class GiornaleModifiche {
+
+    public enum Operazione {
+        AGGIUNTA, RIMOZIONE, MODIFICA
+    }
+
+    //Singola riga del giornale: per RIMOZIONE e MODIFICA isbn è quello del libro da sostituire
+    static class Record {
+        Operazione op;
+        String isbn;
+        Libro libro;
+
+        Record(Operazione op, String isbn, Libro libro) {
+            this.op = op;
+            this.isbn = isbn;
+            this.libro = libro;
+        }
+    }
+
+    //Richiesta per il thread scrittore: una riga da scrivere oppure un cambio di segmento
+    private record Richiesta(byte[] riga, long nuovaGenerazione, CompletableFuture<Long> esito) {}
+
+    private static final String SUFFISSO = ".journal.";
+    private static final long FINE = -1;
+
+    private final Path base;
+    private final Gson gson = new Gson();
+    private final BlockingQueue<Richiesta> coda = new LinkedBlockingQueue<>();
+    private final Thread scrittore;
+
+    private FileChannel canale;
+    private long generazione;           //ultimo segmento richiesto (lato chiamante)
+    private long generazioneAperta;     //segmento aperto dal thread scrittore
+    private int recordDalCheckpoint;
+    private boolean chiuso;
+
+    public GiornaleModifiche(Path base) {
+        this.base = base.toAbsolutePath();
+        this.generazione = segmenti(this.base).stream()
+                .mapToLong(GiornaleModifiche::generazioneDi)
+                .max().orElse(0) + 1;
+        try {
+            apriSegmento(generazione);
+        } catch (IOException e) {
+            throw new RuntimeException("Errore durante l'apertura del giornale: " + e.getMessage());
+        }
+        this.scrittore = new Thread(this::cicloScrittura, "giornale-libreria");
+        this.scrittore.setDaemon(true);
+        this.scrittore.start();
+    }
+
+    public Path getBase() {
+        return base;
+    }
+
+    //Accoda un record; il future si completa quando il record è su disco
+    public synchronized CompletableFuture<Long> registra(Operazione op, String isbn, Libro libro) {
+        if (chiuso) {
+            throw new IllegalStateException("Giornale già chiuso");
+        }
+        byte[] riga = (gson.toJson(new Record(op, isbn, libro)) + "\n").getBytes(StandardCharsets.UTF_8);
+        CompletableFuture<Long> esito = new CompletableFuture<>();
+        coda.add(new Richiesta(riga, 0, esito));
+        recordDalCheckpoint++;
+        return esito;
+    }
+
+    public synchronized int getRecordDalCheckpoint() {
+        return recordDalCheckpoint;
+    }
+
+    //Chiude il segmento corrente e ne apre uno nuovo; il future restituisce la nuova generazione.
+    //Tutti i record accodati prima della rotazione finiscono nei segmenti precedenti.
+    public synchronized CompletableFuture<Long> ruota() {
+        if (chiuso) {
+            throw new IllegalStateException("Giornale già chiuso");
+        }
+        CompletableFuture<Long> esito = new CompletableFuture<>();
+        coda.add(new Richiesta(null, ++generazione, esito));
+        recordDalCheckpoint = 0;
+        return esito;
+    }
+
+    //Attende che tutti i record accodati fino ad ora siano durevoli
+    public CompletableFuture<Long> flush() {
+        CompletableFuture<Long> esito = new CompletableFuture<>();
+        synchronized (this) {
+            if (chiuso) {
+                return CompletableFuture.completedFuture(generazione);
+            }
+            coda.add(new Richiesta(new byte[0], 0, esito));
+        }
+        return esito;
+    }
+
+    //Scrive i record pendenti e ferma il thread scrittore
+    public void chiudi() {
+        CompletableFuture<Long> esito = new CompletableFuture<>();
+        synchronized (this) {
+            if (chiuso) {
+                return;
+            }
+            chiuso = true;
+            coda.add(new Richiesta(null, FINE, esito));
+        }
+        esito.join();
+    }
+
+    //Elimina i segmenti già coperti da uno snapshot (generazione minore di quella indicata)
+    public void eliminaSegmentiPrecedenti(long generazioneCorrente) {
+        for (Path segmento : segmenti(base)) {
+            if (generazioneDi(segmento) < generazioneCorrente) {
+                try {
+                    Files.deleteIfExists(segmento);
+                } catch (IOException e) {
+                    throw new RuntimeException("Errore durante la pulizia del giornale: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void cicloScrittura() {
+        List<Richiesta> gruppo = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (true) {
+            try {
+                gruppo.add(coda.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            coda.drainTo(gruppo);
+
+            boolean fine = false;
+            try {
+                for (Richiesta r : gruppo) {
+                    if (r.riga() != null) {
+                        buffer = accoda(buffer, r.riga());
+                    } else {
+                        scriviBuffer(buffer);
+                        canale.force(false);
+                        canale.close();
+                        if (r.nuovaGenerazione() == FINE) {
+                            fine = true;
+                        } else {
+                            apriSegmento(r.nuovaGenerazione());
+                        }
+                    }
+                }
+                if (!fine) {
+                    scriviBuffer(buffer);
+                    canale.force(false);    //un solo fsync per tutto il gruppo
+                }
+                for (Richiesta r : gruppo) {
+                    r.esito().complete(r.riga() == null && r.nuovaGenerazione() != FINE ? r.nuovaGenerazione() : generazioneAperta);
+                }
+            } catch (IOException e) {
+                buffer.clear();
+                RuntimeException errore = new RuntimeException("Errore durante la scrittura del giornale: " + e.getMessage());
+                gruppo.forEach(r -> r.esito().completeExceptionally(errore));
+            }
+            gruppo.clear();
+            if (fine) {
+                return;
+            }
+        }
+    }
+
+    private ByteBuffer accoda(ByteBuffer buffer, byte[] riga) throws IOException {
+        if (buffer.remaining() < riga.length) {
+            scriviBuffer(buffer);
+            if (buffer.capacity() < riga.length) {
+                buffer = ByteBuffer.allocate(riga.length);
+            }
+        }
+        buffer.put(riga);
+        return buffer;
+    }
+
+    private void scriviBuffer(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canale.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void apriSegmento(long gen) throws IOException {
+        canale = FileChannel.open(percorsoSegmento(base, gen),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        generazioneAperta = gen;
+    }
+
+    /* ───────────────────────────  RIPRISTINO  ─────────────────────────── */
+
+    //Legge in ordine tutti i segmenti presenti e restituisce lo stato finale di ogni ISBN toccato:
+    //il libro risultante oppure null se è stato rimosso. Chi carica lo snapshot scarta le voci
+    //presenti in questa mappa e aggiunge in coda quelle non nulle.
+    //Le operazioni sono idempotenti (per ISBN vince l'ultima scrittura), quindi rigiocare
+    //un segmento già incluso nello snapshot non cambia il risultato.
+    public static Map<String, Libro> leggiModifiche(Path base) {
+        Map<String, Libro> modifiche = new LinkedHashMap<>();
+        Gson gson = new Gson();
+        for (Path segmento : segmenti(base.toAbsolutePath())) {
+            try (BufferedReader reader = Files.newBufferedReader(segmento, StandardCharsets.UTF_8)) {
+                String riga;
+                while ((riga = reader.readLine()) != null) {
+                    if (riga.isBlank()) {
+                        continue;
+                    }
+                    Record r;
+                    try {
+                        r = gson.fromJson(riga, Record.class);
+                    } catch (JsonParseException e) {
+                        break; //riga troncata da un arresto improvviso: il resto del segmento non è valido
+                    }
+                    switch (r.op) {
+                        case AGGIUNTA -> modifiche.put(IndiciLibreria.normalizzaIsbn(r.libro.getIsbn()), r.libro);
+                        case RIMOZIONE -> modifiche.put(IndiciLibreria.normalizzaIsbn(r.isbn), null);
+                        case MODIFICA -> {
+                            modifiche.put(IndiciLibreria.normalizzaIsbn(r.isbn), null);
+                            modifiche.put(IndiciLibreria.normalizzaIsbn(r.libro.getIsbn()), r.libro);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Errore durante la lettura del giornale: " + e.getMessage());
+            }
+        }
+        return modifiche;
+    }
+
+    static List<Path> segmenti(Path base) {
+        Path cartella = base.getParent();
+        String prefisso = base.getFileName() + SUFFISSO;
+        List<Path> trovati = new ArrayList<>();
+        if (cartella == null || !Files.isDirectory(cartella)) {
+            return trovati;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cartella, prefisso + "*")) {
+            for (Path p : stream) {
+                if (generazioneDi(p) > 0) {
+                    trovati.add(p);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Errore durante la ricerca dei segmenti del giornale: " + e.getMessage());
+        }
+        trovati.sort(Comparator.comparingLong(GiornaleModifiche::generazioneDi));
+        return trovati;
+    }
+
+    private static Path percorsoSegmento(Path base, long gen) {
+        return base.resolveSibling(base.getFileName() + SUFFISSO + gen);
+    }
+
+    private static long generazioneDi(Path segmento) {
+        String nome = segmento.getFileName().toString();
+        try {
+            return Long.parseLong(nome.substring(nome.lastIndexOf('.') + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package persistence;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import model.IndiciLibreria;
+import model.Libreria;
+import model.Libro;
+import util.ISBNvalido;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Importazione di cataloghi esterni in formato CSV (con intestazione) o JSON (array di libri).
+ * Il file viene letto in streaming a blocchi di righe; conversione e validazione dei blocchi
+ * avvengono in parallelo su tutti i core, mentre duplicati e inserimenti vengono gestiti
+ * nell'ordine del file. I libri validi entrano in libreria a lotti con {@link Libreria#inBatch},
+ * le righe scartate vengono restituite con il motivo.
+ */
+public class ImportatoreCatalogo {
+
+    public static final int DIMENSIONE_LOTTO = 10_000;
+    private static final int RIGHE_PER_BLOCCO = 2_048;
+
+    //Avanzamento dopo ogni lotto inserito in libreria
+    @FunctionalInterface
+    public interface Avanzamento {
+        void aggiorna(int righeLette, int importati, int scartati);
+    }
+
+    public record RigaScartata(int riga, String contenuto, String motivo) {}
+
+    public record Esito(int righeLette, int importati, List<RigaScartata> scartate) {}
+
+    //Riga letta dal file: campi per nome (in minuscolo) e testo originale per il resoconto
+    private record Grezza(int riga, Map<String, String> campi, String contenuto) {}
+
+    private record Valido(int riga, Libro libro, String contenuto) {}
+
+    private record Blocco(List<Valido> validi, List<RigaScartata> scartate) {}
+
+    private final Libreria libreria;
+    private int dimensioneLotto = DIMENSIONE_LOTTO;
+    private int parallelismo = Runtime.getRuntime().availableProcessors();
+    private Avanzamento avanzamento = (lette, importati, scartati) -> {};
+
+    public ImportatoreCatalogo(Libreria libreria) {
+        this.libreria = libreria;
+    }
+
+    public void setDimensioneLotto(int dimensioneLotto) {
+        this.dimensioneLotto = Math.max(1, dimensioneLotto);
+    }
+
+    public void setParallelismo(int parallelismo) {
+        this.parallelismo = Math.max(1, parallelismo);
+    }
+
+    public void setAvanzamento(Avanzamento avanzamento) {
+        this.avanzamento = avanzamento;
+    }
+
+    //Il formato si sceglie dall'estensione: .json per il JSON, tutto il resto è CSV
+    public Esito importa(Path file) {
+        boolean json = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+        ExecutorService esecutore = Executors.newFixedThreadPool(parallelismo, r -> {
+            Thread t = new Thread(r, "importazione-catalogo");
+            t.setDaemon(true);
+            return t;
+        });
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Stato stato = new Stato();
+            if (json) {
+                leggiJSON(reader, esecutore, stato);
+            } else {
+                leggiCSV(reader, esecutore, stato);
+            }
+            stato.chiudi();
+            stato.scartate.sort(Comparator.comparingInt(RigaScartata::riga));
+            return new Esito(stato.righeLette, stato.importati, stato.scartate);
+        } catch (IOException | JsonParseException e) {
+            throw new RuntimeException("Errore durante l'importazione del catalogo: " + e.getMessage());
+        } finally {
+            esecutore.shutdownNow();
+        }
+    }
+
+    /* ───────────────────────────  LETTURA  ─────────────────────────── */
+
+    private void leggiCSV(BufferedReader reader, ExecutorService esecutore, Stato stato) throws IOException {
+        String intestazione = reader.readLine();
+        if (intestazione == null) {
+            return;
+        }
+        if (intestazione.startsWith("\uFEFF")) {
+            intestazione = intestazione.substring(1); // BOM dei file salvati da Excel
+        }
+        char separatore = intestazione.indexOf(';') >= 0 && intestazione.indexOf(',') < 0 ? ';' : ',';
+        List<String> nomi = new ArrayList<>();
+        for (String nome : campiCSV(intestazione, separatore)) {
+            nomi.add(nome.trim().toLowerCase(Locale.ROOT));
+        }
+
+        List<String> righe = new ArrayList<>(RIGHE_PER_BLOCCO);
+        int[] numeri = new int[RIGHE_PER_BLOCCO];
+        int numero = 1;
+        String riga;
+        while ((riga = reader.readLine()) != null) {
+            numero++;
+            if (riga.isBlank()) {
+                continue;
+            }
+            numeri[righe.size()] = numero;
+            righe.add(riga);
+            if (righe.size() == RIGHE_PER_BLOCCO) {
+                stato.invia(esecutore, bloccoCSV(righe, numeri, nomi, separatore));
+                righe = new ArrayList<>(RIGHE_PER_BLOCCO);
+                numeri = new int[RIGHE_PER_BLOCCO];
+            }
+        }
+        if (!righe.isEmpty()) {
+            stato.invia(esecutore, bloccoCSV(righe, numeri, nomi, separatore));
+        }
+    }
+
+    //Lo split delle righe avviene nel thread di lavoro, insieme alla validazione
+    private Callable<Blocco> bloccoCSV(List<String> righe, int[] numeri, List<String> nomi, char separatore) {
+        return () -> {
+            List<Grezza> grezze = new ArrayList<>(righe.size());
+            for (int i = 0; i < righe.size(); i++) {
+                List<String> valori = campiCSV(righe.get(i), separatore);
+                Map<String, String> campi = new HashMap<>();
+                for (int c = 0; c < nomi.size() && c < valori.size(); c++) {
+                    campi.put(nomi.get(c), valori.get(c));
+                }
+                grezze.add(new Grezza(numeri[i], campi, righe.get(i)));
+            }
+            return converti(grezze);
+        };
+    }
+
+    private void leggiJSON(BufferedReader reader, ExecutorService esecutore, Stato stato) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        if (json.peek() == JsonToken.NULL) {
+            return;
+        }
+        json.beginArray();
+        List<JsonElement> elementi = new ArrayList<>(RIGHE_PER_BLOCCO);
+        int numero = 0;
+        int primo = 1;
+        while (json.hasNext()) {
+            elementi.add(JsonParser.parseReader(json)); //la tokenizzazione è sequenziale, la conversione no
+            numero++;
+            if (elementi.size() == RIGHE_PER_BLOCCO) {
+                stato.invia(esecutore, bloccoJSON(elementi, primo));
+                elementi = new ArrayList<>(RIGHE_PER_BLOCCO);
+                primo = numero + 1;
+            }
+        }
+        json.endArray();
+        if (!elementi.isEmpty()) {
+            stato.invia(esecutore, bloccoJSON(elementi, primo));
+        }
+    }
+
+    private Callable<Blocco> bloccoJSON(List<JsonElement> elementi, int primo) {
+        return () -> {
+            List<Grezza> grezze = new ArrayList<>(elementi.size());
+            for (int i = 0; i < elementi.size(); i++) {
+                JsonElement elemento = elementi.get(i);
+                Map<String, String> campi = new HashMap<>();
+                if (elemento.isJsonObject()) {
+                    for (Map.Entry<String, JsonElement> voce : elemento.getAsJsonObject().entrySet()) {
+                        JsonElement valore = voce.getValue();
+                        campi.put(voce.getKey().toLowerCase(Locale.ROOT),
+                                valore.isJsonPrimitive() ? valore.getAsString() : null);
+                    }
+                }
+                grezze.add(new Grezza(primo + i, campi, elemento.toString()));
+            }
+            return converti(grezze);
+        };
+    }
+
+    /* ───────────────────────────  VALIDAZIONE  ─────────────────────────── */
+
+    private static Blocco converti(List<Grezza> grezze) {
+        List<Valido> validi = new ArrayList<>(grezze.size());
+        List<RigaScartata> scartate = new ArrayList<>();
+        for (Grezza g : grezze) {
+            try {
+                validi.add(new Valido(g.riga(), convalida(g.campi()), g.contenuto()));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                scartate.add(new RigaScartata(g.riga(), g.contenuto(), e.getMessage()));
+            }
+        }
+        return new Blocco(validi, scartate);
+    }
+
+    //Stesse regole del dialog di inserimento: campi obbligatori, anno tra 1000 e 2030, ISBN plausibile
+    static Libro convalida(Map<String, String> campi) {
+        String titolo = obbligatorio(campi, "titolo");
+        String autore = obbligatorio(campi, "autore");
+        String genere = obbligatorio(campi, "genere");
+        String isbn = obbligatorio(campi, "isbn");
+        if (!ISBNvalido.isISBN(isbn)) {
+            throw new IllegalArgumentException("ISBN non plausibile: " + isbn);
+        }
+        String testoAnno = primo(campi, "annopubblicazione", "anno");
+        int anno;
+        try {
+            anno = Integer.parseInt(testoAnno == null ? "" : testoAnno.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Anno non valido: " + testoAnno);
+        }
+        if (anno < 1000 || anno > 2030) {
+            throw new IllegalArgumentException("L'anno deve essere compreso tra 1000 e 2030: " + anno);
+        }
+
+        Libro libro = new Libro(titolo, autore, isbn, genere, anno);
+        String stato = primo(campi, "statolettura", "stato");
+        if (stato != null && !stato.isBlank()) {
+            try {
+                libro.setStatoLettura(Libro.StatoLettura.valueOf(stato.trim().toUpperCase(Locale.ROOT).replace(' ', '_')));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Stato di lettura non valido: " + stato);
+            }
+        }
+        String valutazione = campi.get("valutazione");
+        if (valutazione != null && !valutazione.isBlank()) {
+            int voto;
+            try {
+                voto = Integer.parseInt(valutazione.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Valutazione non valida: " + valutazione);
+            }
+            if (voto < 0 || voto > 5) {
+                throw new IllegalArgumentException("La valutazione deve essere compresa tra 0 e 5: " + voto);
+            }
+            if (voto > 0) {
+                libro.setValutazione(voto); //IllegalStateException se il libro non è LETTO
+            }
+        }
+        return libro;
+    }
+
+    private static String obbligatorio(Map<String, String> campi, String nome) {
+        String valore = campi.get(nome);
+        if (valore == null || valore.trim().isEmpty()) {
+            throw new IllegalArgumentException("Campo obbligatorio mancante: " + nome);
+        }
+        return valore.trim();
+    }
+
+    private static String primo(Map<String, String> campi, String... nomi) {
+        for (String nome : nomi) {
+            if (campi.get(nome) != null) {
+                return campi.get(nome);
+            }
+        }
+        return null;
+    }
+
+    //Campi di una riga CSV: virgolette per i campi che contengono il separatore, "" per una virgoletta
+    static List<String> campiCSV(String riga, char separatore) {
+        List<String> campi = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean traVirgolette = false;
+        for (int i = 0; i < riga.length(); i++) {
+            char c = riga.charAt(i);
+            if (traVirgolette) {
+                if (c == '"' && i + 1 < riga.length() && riga.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    traVirgolette = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                traVirgolette = true;
+            } else if (c == separatore) {
+                campi.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campi.add(campo.toString());
+        return campi;
+    }
+
+    /* ───────────────────────────  INSERIMENTO  ─────────────────────────── */
+
+    //Blocchi in volo, duplicati già visti e lotto in preparazione; usato solo dal thread che importa
+    private class Stato {
+        private final ArrayDeque<Future<Blocco>> inVolo = new ArrayDeque<>();
+        private final Set<String> isbnVisti = new HashSet<>();
+        private final List<Valido> lotto = new ArrayList<>();
+        private final List<RigaScartata> scartate = new ArrayList<>();
+        private int righeLette;
+        private int importati;
+
+        //Al massimo due blocchi per thread in attesa: la memoria resta limitata anche su file enormi
+        void invia(ExecutorService esecutore, Callable<Blocco> blocco) {
+            inVolo.add(esecutore.submit(blocco));
+            while (inVolo.size() > 2 * parallelismo) {
+                raccogli(inVolo.poll());
+            }
+        }
+
+        void chiudi() {
+            while (!inVolo.isEmpty()) {
+                raccogli(inVolo.poll());
+            }
+            if (!lotto.isEmpty()) {
+                inserisciLotto();
+            }
+        }
+
+        private void raccogli(Future<Blocco> futuro) {
+            Blocco blocco;
+            try {
+                blocco = futuro.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Errore durante l'importazione del catalogo: interrotta");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Errore durante l'importazione del catalogo: " + e.getCause().getMessage());
+            }
+            righeLette += blocco.validi().size() + blocco.scartate().size();
+            scartate.addAll(blocco.scartate());
+            for (Valido valido : blocco.validi()) {
+                if (!isbnVisti.add(IndiciLibreria.normalizzaIsbn(valido.libro().getIsbn()))) {
+                    scartate.add(new RigaScartata(valido.riga(), valido.contenuto(), "ISBN duplicato nel file"));
+                    continue;
+                }
+                lotto.add(valido);
+                if (lotto.size() >= dimensioneLotto) {
+                    inserisciLotto();
+                }
+            }
+        }
+
+        private void inserisciLotto() {
+            List<Boolean> esiti = libreria.inBatch(tx -> lotto.forEach(v -> tx.aggiungi(v.libro())));
+            for (int i = 0; i < esiti.size(); i++) {
+                if (esiti.get(i)) {
+                    importati++;
+                } else {
+                    Valido v = lotto.get(i);
+                    scartate.add(new RigaScartata(v.riga(), v.contenuto(), "ISBN già presente in libreria"));
+                }
+            }
+            lotto.clear();
+            avanzamento.aggiorna(righeLette, importati, scartate.size());
+        }
+    }
+}
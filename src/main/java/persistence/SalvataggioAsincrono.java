@@ -0,0 +1,139 @@
+package persistence;
+
+import model.Libro;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Salvataggio completo della libreria eseguito fuori dal thread chiamante.
+ * Ogni modifica segna la libreria come "sporca"; un thread virtuale aspetta la finestra
+ * di raggruppamento, legge l'ultima versione della lista e la scrive una volta sola,
+ * così una raffica di modifiche produce un'unica scrittura.
+ * Il thread termina quando non c'è più nulla da scrivere e viene ricreato alla modifica successiva.
+ */
+public class SalvataggioAsincrono {
+
+    public static final Duration FINESTRA_PREDEFINITA = Duration.ofMillis(250);
+
+    private final Supplier<List<Libro>> sorgente;
+    private final Consumer<List<Libro>> scrittura;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition svegliati = lock.newCondition();
+
+    private long finestraNanos = FINESTRA_PREDEFINITA.toNanos();
+    private boolean sporco;
+    private long primaModifica;                                  //istante della prima modifica non ancora scritta
+    private CompletableFuture<Void> prossimo = new CompletableFuture<>(); //si completa con la prossima scrittura
+    private CompletableFuture<Void> inCorso;                     //scrittura in esecuzione
+    private boolean flushRichiesto;
+    private boolean chiuso;
+    private Thread scrittore;
+
+    //sorgente deve restituire una lista che nessuno modificherà durante la scrittura
+    public SalvataggioAsincrono(Supplier<List<Libro>> sorgente, Consumer<List<Libro>> scrittura) {
+        this.sorgente = sorgente;
+        this.scrittura = scrittura;
+    }
+
+    public void setFinestra(Duration finestra) {
+        lock.lock();
+        try {
+            this.finestraNanos = finestra.toNanos();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Segna la libreria come modificata; il future si completa quando una scrittura che include la modifica è su disco
+    public CompletableFuture<Void> segnaModificata() {
+        lock.lock();
+        try {
+            if (chiuso) {
+                throw new IllegalStateException("Salvataggio già chiuso");
+            }
+            if (!sporco) {
+                sporco = true;
+                primaModifica = System.nanoTime();
+            }
+            if (scrittore == null) {
+                scrittore = Thread.ofVirtual().name("salvataggio-libreria").start(this::ciclo);
+            }
+            return prossimo;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Anticipa la scrittura in attesa senza aspettare la fine della finestra
+    public CompletableFuture<Void> flush() {
+        lock.lock();
+        try {
+            if (sporco) {
+                flushRichiesto = true;
+                svegliati.signalAll();
+                return prossimo;
+            }
+            return inCorso != null ? inCorso : CompletableFuture.completedFuture(null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Scrive le modifiche in sospeso e non accetta più modifiche (da chiamare alla chiusura)
+    public void chiudi() {
+        lock.lock();
+        try {
+            chiuso = true;
+        } finally {
+            lock.unlock();
+        }
+        flush().join();
+    }
+
+    //Un errore della scrittura (anche un Error) finisce nel future della scrittura e il ciclo prosegue;
+    //in ogni caso all'uscita il thread si toglie, così la modifica successiva ne avvia uno nuovo
+    private void ciclo() {
+        lock.lock();
+        try {
+            while (sporco) {
+                //finestra di raggruppamento: le modifiche che arrivano nel frattempo finiscono nella stessa scrittura
+                long attesa;
+                while (!flushRichiesto && (attesa = primaModifica + finestraNanos - System.nanoTime()) > 0) {
+                    try {
+                        svegliati.awaitNanos(attesa);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                CompletableFuture<Void> esito = prossimo;
+                prossimo = new CompletableFuture<>();
+                sporco = false;
+                flushRichiesto = false;
+                inCorso = esito;
+
+                lock.unlock();
+                try {
+                    scrittura.accept(sorgente.get());
+                    esito.complete(null);
+                } catch (Throwable e) {
+                    esito.completeExceptionally(e);
+                } finally {
+                    lock.lock();
+                }
+                if (inCorso == esito) {
+                    inCorso = null;
+                }
+            }
+        } finally {
+            scrittore = null;
+            lock.unlock();
+        }
+    }
+}
@@ -2,20 +2,47 @@ package persistence;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import model.IndiciLibreria;
 import model.Libro;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class SingletonJSON {
     private static SingletonJSON instance;
     private Gson gson;
     private final String PATH = "libreria.json";
     private static Path tempPath = null;
+    private static final int BYTE_MEDI_PER_LIBRO = 200; // un libro occupa circa 200 byte nel JSON indentato
+
+    //Modalità journal: le mutazioni vengono accodate nel giornale invece di riscrivere tutto il file
+    private static final int SOGLIA_CHECKPOINT = 10_000;
+    private boolean journalAttivo = false;
+    //Formato binario: gli snapshot vengono scritti in SnapshotBinario accanto al JSON, per un avvio più veloce
+    private boolean formatoBinario = false;
+    private GiornaleModifiche giornale;
+    private final Object lockSnapshot = new Object(); // una sola scrittura dello snapshot alla volta (file temporaneo condiviso)
+    private final ExecutorService checkpointExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "checkpoint-libreria");
+        t.setDaemon(true);
+        return t;
+    });
 
     //Usiamo il costruttore privato, per utilizzare il pattern Singleton,
     //usiamo questo pattern per assicurarci che ci sia sempre un'unica istanza del file JSON
@@ -44,38 +71,294 @@ public class SingletonJSON {
         return new File(PATH);
     }
 
+    //Snapshot binario con lo stesso nome del JSON: libreria.json -> libreria.bin
+    private Path getFileBinario() {
+        Path json = getTargetFile().toPath().toAbsolutePath();
+        String nome = json.getFileName().toString();
+        String base = nome.endsWith(".json") ? nome.substring(0, nome.length() - ".json".length()) : nome;
+        return json.resolveSibling(base + ".bin");
+    }
+
+    //Con il formato binario attivo ogni snapshot viene scritto in tutti e due i formati: libreria.bin
+    //per un avvio più veloce e libreria.json, che resta aggiornato e leggibile anche senza l'applicazione.
+    //All'attivazione lo snapshot binario mancante viene creato dal JSON
+    public void setFormatoBinario(boolean binario) {
+        synchronized (this) {
+            this.formatoBinario = binario;
+        }
+        allineaFormati();
+    }
+
+    public synchronized boolean isFormatoBinario() {
+        return formatoBinario;
+    }
+
+    //Lo snapshot binario si legge solo con il formato binario attivo (o se manca il JSON):
+    //in quella modalità è sempre aggiornato almeno quanto il JSON, perché viene scritto per primo,
+    //e gli snapshot scritti solo in JSON eliminano prima lo snapshot binario ormai superato.
+    //Le date di modifica dei file non vengono usate.
+    private boolean snapshotBinarioPiuRecente() {
+        if (!esisteSnapshot(getFileBinario())) {
+            return false;
+        }
+        return isFormatoBinario() || !esisteSnapshot(getTargetFile().toPath());
+    }
+
+    private static boolean esisteSnapshot(Path file) {
+        File f = file.toFile();
+        return f.exists() && f.length() > 0;
+    }
+
+    //Converte lo snapshot nell'altro formato quando uno dei due manca: il JSON viene ricostruito
+    //dallo snapshot binario (ad esempio dopo averlo cancellato a mano), il binario creato dal JSON
+    //quando si attiva il formato binario
+    public void allineaFormati() {
+        Path json = getTargetFile().toPath().toAbsolutePath();
+        Path binario = getFileBinario();
+        synchronized (lockSnapshot) {
+            try {
+                if (!esisteSnapshot(json) && esisteSnapshot(binario)) {
+                    Path temp = temporaneo(json);
+                    SnapshotBinario.inJSON(binario, temp);
+                    sostituisci(temp, json);
+                } else if (isFormatoBinario() && esisteSnapshot(json) && !esisteSnapshot(binario)) {
+                    Path temp = temporaneo(binario);
+                    SnapshotBinario.daJSON(json, temp);
+                    sostituisci(temp, binario);
+                }
+            } catch (IOException | JsonParseException | IllegalArgumentException e) {
+                throw new RuntimeException("Errore durante la conversione dello snapshot: " + e.getMessage());
+            }
+        }
+    }
+
 
     //Metodo per salavare i libri in libreria
+    //In modalità journal equivale a un checkpoint sincrono
     public void salvaInLibreria(List<Libro> libri) {
+        if (journalAttivo) {
+            checkpoint(libri).join();
+            return;
+        }
+        synchronized (lockSnapshot) {
+            scriviSnapshot(libri);
+            GiornaleModifiche.segmenti(getTargetFile().toPath().toAbsolutePath()).forEach(segmento -> segmento.toFile().delete());
+        }
+    }
+
+    //Scrive lo snapshot su un file temporaneo e lo rinomina sul file definitivo,
+    //così un arresto a metà scrittura non lascia mai un JSON troncato.
+    //Il JSON viene scritto sempre; con il formato binario attivo prima si scrive libreria.bin,
+    //altrimenti prima si elimina, perché non resti uno snapshot binario più vecchio del JSON
+    private void scriviSnapshot(List<Libro> libri) {
+        Path json = getTargetFile().toPath().toAbsolutePath();
+        Path binario = getFileBinario();
         try {
-            FileWriter fileWriter = new FileWriter(getTargetFile());
-            gson.toJson(libri, fileWriter);
-            fileWriter.close();
+            if (isFormatoBinario()) {
+                Path temp = temporaneo(binario);
+                SnapshotBinario.scrivi(libri, temp);
+                try (FileChannel canale = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    canale.force(true);
+                }
+                sostituisci(temp, binario);
+            } else {
+                Files.deleteIfExists(binario);
+            }
+            Path temp = temporaneo(json);
+            try (FileOutputStream out = new FileOutputStream(temp.toFile());
+                 Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                gson.toJson(libri, writer);
+                writer.flush();
+                out.getFD().sync();
+            }
+            sostituisci(temp, json);
         } catch (IOException e) {
             throw new RuntimeException("Errore durante il salvataggio del libro" + e.getMessage());
         }
     }
 
+    private static Path temporaneo(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    private static void sostituisci(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /* ───────────────────────────  MODALITÀ JOURNAL  ─────────────────────────── */
+
+    public synchronized void setJournal(boolean attivo) {
+        if (!attivo && giornale != null) {
+            giornale.chiudi();
+            giornale = null;
+        }
+        this.journalAttivo = attivo;
+    }
+
+    public synchronized boolean isJournalAttivo() {
+        return journalAttivo;
+    }
+
+    public CompletableFuture<Long> registraAggiunta(Libro libro) {
+        return getGiornale().registra(GiornaleModifiche.Operazione.AGGIUNTA, null, libro);
+    }
+
+    public CompletableFuture<Long> registraRimozione(Libro libro) {
+        return getGiornale().registra(GiornaleModifiche.Operazione.RIMOZIONE, libro.getIsbn(), null);
+    }
+
+    public CompletableFuture<Long> registraModifica(Libro libroV, Libro libroN) {
+        return getGiornale().registra(GiornaleModifiche.Operazione.MODIFICA, libroV.getIsbn(), libroN);
+    }
+
+    //true quando il giornale è cresciuto abbastanza da meritare una compattazione
+    public boolean checkpointNecessario() {
+        return journalAttivo && getGiornale().getRecordDalCheckpoint() >= SOGLIA_CHECKPOINT;
+    }
+
+    //Compatta il giornale in un nuovo snapshot, scritto in background.
+    //Va chiamato con la libreria in uno stato consistente: la copia e la rotazione
+    //del giornale avvengono subito, solo la scrittura su disco è asincrona.
+    public CompletableFuture<Void> checkpoint(List<Libro> libri) {
+        List<Libro> copia = new ArrayList<>(libri);
+        GiornaleModifiche g = getGiornale();
+        return g.ruota().thenAcceptAsync(generazione -> {
+            synchronized (lockSnapshot) {
+                scriviSnapshot(copia);
+                g.eliminaSegmentiPrecedenti(generazione);
+            }
+        }, checkpointExecutor);
+    }
+
+    //Future che si completa quando i record già accodati nel giornale sono su disco
+    public synchronized CompletableFuture<Void> flushGiornale() {
+        if (giornale == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return giornale.flush().thenApply(generazione -> null);
+    }
+
+    //Rende durevoli i record in sospeso e chiude il giornale (da chiamare alla chiusura dell'applicazione)
+    public synchronized void chiudi() {
+        if (giornale != null) {
+            giornale.chiudi();
+            giornale = null;
+        }
+    }
+
+    //Il giornale segue il file di destinazione corrente (i test cambiano percorso con overridePath)
+    private synchronized GiornaleModifiche getGiornale() {
+        Path base = getTargetFile().toPath().toAbsolutePath();
+        if (giornale == null || !giornale.getBase().equals(base)) {
+            if (giornale != null) {
+                giornale.chiudi();
+            }
+            giornale = new GiornaleModifiche(base);
+        }
+        return giornale;
+    }
+
     //Metodo per leggere il contenuto della libreria
+    //La lista restituita è già dimensionata sulla stima del numero di libri ed è di proprietà del chiamante
     public List<Libro> leggiDaLibreria() {
-        File file = getTargetFile();
+        List<Libro> libri = new ArrayList<>(stimaNumeroLibri());
+        leggiDaLibreria(libri::add);
+        return libri;
+    }
+
+    //Legge i libri uno alla volta con un JsonReader e li passa alla destinazione senza
+    //materializzare l'intero array: in memoria restano solo il libro corrente e le modifiche del giornale.
+    //Restituisce il numero di libri consegnati.
+    public int leggiDaLibreria(Consumer<Libro> destinazione) {
+        return leggiDaLibreria(getTargetFile(), libro -> {
+            // Gson imposta i campi senza passare dai setter: autore e genere vanno condivisi qui
+            libro.setAutore(libro.getAutore());
+            libro.setGenere(libro.getGenere());
+            destinazione.accept(libro);
+        });
+    }
 
-        if(!file.exists()) {
-            return new ArrayList<>();
+    private int leggiDaLibreria(File file, Consumer<Libro> destinazione) {
+        synchronized (this) {
+            if (giornale != null) {
+                giornale.flush().join(); //i record ancora in coda devono essere visibili nel giornale
+            }
         }
 
-        //Legge prima il libro dal file JSON e lo inserisce in un array, che convertiamo dopo in un ArrayList
-        try (FileReader fileReader = new FileReader(file)){
-            Libro[] lib = gson.fromJson(fileReader, Libro[].class);
-            List<Libro> libri = Arrays.asList(lib);
-            return Objects.requireNonNullElseGet(libri, ArrayList::new);// Se libri dovesse essere null restituisce un'ArrayList vuoto
+        // le modifiche registrate nel giornale prevalgono sulle voci dello snapshot
+        Map<String, Libro> modifiche = GiornaleModifiche.leggiModifiche(file.toPath());
+        int[] letti = {0};
+        Consumer<Libro> daSnapshot = libro -> {
+            if (!modifiche.isEmpty() && modifiche.containsKey(IndiciLibreria.normalizzaIsbn(libro.getIsbn()))) {
+                return;
+            }
+            destinazione.accept(libro);
+            letti[0]++;
+        };
+
+        if (snapshotBinarioPiuRecente()) {
+            leggiBinario(getFileBinario(), daSnapshot);
+        } else if (file.exists() && file.length() > 0) {
+            leggiJSON(file, daSnapshot);
+        }
+
+        for (Libro libro : modifiche.values()) {
+            if (libro != null) {
+                destinazione.accept(libro);
+                letti[0]++;
+            }
+        }
+        return letti[0];
+    }
 
+    private void leggiJSON(File file, Consumer<Libro> destinazione) {
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 64 * 1024))) {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull(); // file con "null": libreria vuota
+                return;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                destinazione.accept(gson.fromJson(reader, Libro.class));
+            }
+            reader.endArray();
         } catch (FileNotFoundException e) {
             throw new RuntimeException("Errore durante la lettura del file" + e.getMessage());
-        } catch (IOException e) {
-            throw new RuntimeException("Errore durante la chiusura del file: " + e.getMessage());
+        } catch (IOException | JsonParseException e) {
+            throw new RuntimeException("Errore durante la lettura del file: " + e.getMessage());
+        }
+    }
+
+    //I libri vengono creati dai record uno alla volta, senza parsing del testo;
+    //il file è già chiuso quando apri restituisce lo snapshot
+    private void leggiBinario(Path file, Consumer<Libro> destinazione) {
+        try {
+            SnapshotBinario snapshot = SnapshotBinario.apri(file);
+            for (int i = 0; i < snapshot.size(); i++) {
+                destinazione.accept(snapshot.get(i));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RuntimeException("Errore durante la lettura del file: " + e.getMessage());
         }
+    }
 
+    //Stima del numero di libri dalla dimensione dello snapshot, usata per pre-dimensionare la lista
+    //(con lo snapshot binario il numero è esatto, letto dall'intestazione)
+    public int stimaNumeroLibri() {
+        if (snapshotBinarioPiuRecente()) {
+            try {
+                return SnapshotBinario.contaLibri(getFileBinario()) + 16;
+            } catch (IOException | IllegalArgumentException e) {
+                // intestazione illeggibile: si usa la stima sul JSON, la lettura segnalerà l'errore
+            }
+        }
+        long byteSnapshot = getTargetFile().length();
+        return (int) Math.min(Integer.MAX_VALUE - 8, byteSnapshot / BYTE_MEDI_PER_LIBRO + 16);
     }
 
 
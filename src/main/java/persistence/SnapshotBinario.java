@@ -0,0 +1,229 @@
+package persistence;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import model.Libro;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Snapshot della libreria in formato binario, alternativo al JSON.
+ * <pre>
+ * intestazione (32 byte): magia, versione, numero libri, numero stringhe,
+ *                         posizione della tabella delle stringhe, posizione dei dati delle stringhe
+ * record (24 byte per libro): titolo, autore, isbn, genere (indici nella tabella delle stringhe,
+ *                             -1 se null), anno, valutazione (byte), stato (byte, -1 se null), 2 byte liberi
+ * tabella delle stringhe: numeroStringhe + 1 posizioni di fine (int), poi i byte UTF-8
+ * </pre>
+ * Le stringhe uguali (generi, autori ripetuti) sono salvate una sola volta.
+ * Il file viene letto in memoria con un FileChannel chiuso subito dopo, così nessuna mappatura
+ * lo tiene aperto mentre viene sostituito; i Libro vengono creati solo quando richiesti con get.
+ */
+public final class SnapshotBinario extends AbstractList<Libro> implements RandomAccess {
+
+    private static final int MAGIA = 0x4C494231; // "LIB1"
+    private static final int VERSIONE = 1;
+    private static final int DIM_INTESTAZIONE = 32;
+    private static final int DIM_RECORD = 24;
+
+    private final ByteBuffer dati;
+    private final int numeroLibri;
+    private final int numeroStringhe;
+    private final int posTabella;
+    private final int posDatiStringhe;
+    private final String[] stringhe; //decodificate una volta sola e condivise tra i libri
+
+    private SnapshotBinario(ByteBuffer dati) {
+        this.dati = dati;
+        if (dati.limit() < DIM_INTESTAZIONE || dati.getInt(0) != MAGIA) {
+            throw new IllegalArgumentException("Il file non è uno snapshot binario della libreria");
+        }
+        if (dati.getInt(4) != VERSIONE) {
+            throw new IllegalArgumentException("Versione dello snapshot binario non supportata: " + dati.getInt(4));
+        }
+        this.numeroLibri = dati.getInt(8);
+        this.numeroStringhe = dati.getInt(12);
+        this.posTabella = (int) dati.getLong(16);
+        this.posDatiStringhe = (int) dati.getLong(24);
+        this.stringhe = new String[numeroStringhe];
+    }
+
+    //Legge l'intero file e chiude il canale prima di restituire: i record vengono decodificati solo quando servono
+    public static SnapshotBinario apri(Path file) throws IOException {
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (canale.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot binario troppo grande: " + canale.size() + " byte");
+            }
+            return new SnapshotBinario(leggi(canale, (int) canale.size()));
+        }
+    }
+
+    //Numero di libri letto dall'intestazione, senza leggere tutto il file
+    public static int contaLibri(Path file) throws IOException {
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SnapshotBinario(leggi(canale, DIM_INTESTAZIONE)).size();
+        }
+    }
+
+    private static ByteBuffer leggi(FileChannel canale, int byteMassimi) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(byteMassimi);
+        while (buffer.hasRemaining() && canale.read(buffer) >= 0) {
+            // legge fino a riempire il buffer o alla fine del file
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public int size() {
+        return numeroLibri;
+    }
+
+    //Crea il Libro corrispondente al record i
+    @Override
+    public Libro get(int i) {
+        int r = posizioneRecord(i);
+        Libro libro = new Libro(stringa(dati.getInt(r)), stringa(dati.getInt(r + 4)),
+                stringa(dati.getInt(r + 8)), stringa(dati.getInt(r + 12)), dati.getInt(r + 16));
+        byte stato = dati.get(r + 21);
+        libro.setStatoLettura(stato < 0 ? null : Libro.StatoLettura.values()[stato]);
+        byte valutazione = dati.get(r + 20);
+        if (valutazione > 0 && libro.getStatoLettura() == Libro.StatoLettura.LETTO) {
+            libro.setValutazione(valutazione);
+        }
+        return libro;
+    }
+
+    //Accesso diretto ai campi a larghezza fissa, senza creare il Libro
+    public int annoPubblicazione(int i) {
+        return dati.getInt(posizioneRecord(i) + 16);
+    }
+
+    public int valutazione(int i) {
+        return dati.get(posizioneRecord(i) + 20);
+    }
+
+    public Libro.StatoLettura statoLettura(int i) {
+        byte stato = dati.get(posizioneRecord(i) + 21);
+        return stato < 0 ? null : Libro.StatoLettura.values()[stato];
+    }
+
+    private int posizioneRecord(int i) {
+        if (i < 0 || i >= numeroLibri) {
+            throw new IndexOutOfBoundsException("Indice " + i + " fuori dai limiti per lunghezza " + numeroLibri);
+        }
+        return DIM_INTESTAZIONE + i * DIM_RECORD;
+    }
+
+    private String stringa(int indice) {
+        if (indice < 0) {
+            return null;
+        }
+        String s = stringhe[indice];
+        if (s == null) {
+            int inizio = indice == 0 ? 0 : dati.getInt(posTabella + (indice - 1) * 4);
+            int fine = dati.getInt(posTabella + indice * 4);
+            byte[] utf8 = new byte[fine - inizio];
+            dati.get(posDatiStringhe + inizio, utf8);
+            s = new String(utf8, StandardCharsets.UTF_8);
+            stringhe[indice] = s;
+        }
+        return s;
+    }
+
+    /* ───────────────────────────  SCRITTURA  ─────────────────────────── */
+
+    public static void scrivi(List<Libro> libri, Path file) throws IOException {
+        Map<String, Integer> indiceStringhe = new HashMap<>();
+        List<byte[]> stringheUtf8 = new ArrayList<>();
+        int[] record = new int[libri.size() * 4];
+        int k = 0;
+        for (Libro libro : libri) {
+            record[k++] = indiceStringa(libro.getTitolo(), indiceStringhe, stringheUtf8);
+            record[k++] = indiceStringa(libro.getAutore(), indiceStringhe, stringheUtf8);
+            record[k++] = indiceStringa(libro.getIsbn(), indiceStringhe, stringheUtf8);
+            record[k++] = indiceStringa(libro.getGenere(), indiceStringhe, stringheUtf8);
+        }
+
+        long posTabella = DIM_INTESTAZIONE + (long) libri.size() * DIM_RECORD;
+        long posDati = posTabella + (long) stringheUtf8.size() * 4;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024))) {
+            out.writeInt(MAGIA);
+            out.writeInt(VERSIONE);
+            out.writeInt(libri.size());
+            out.writeInt(stringheUtf8.size());
+            out.writeLong(posTabella);
+            out.writeLong(posDati);
+
+            k = 0;
+            for (Libro libro : libri) {
+                for (int campo = 0; campo < 4; campo++) {
+                    out.writeInt(record[k++]);
+                }
+                out.writeInt(libro.getAnnoPubblicazione());
+                out.writeByte(libro.getValutazione());
+                out.writeByte(libro.getStatoLettura() == null ? -1 : libro.getStatoLettura().ordinal());
+                out.writeShort(0);
+            }
+
+            int fine = 0;
+            for (byte[] s : stringheUtf8) {
+                fine += s.length;
+                out.writeInt(fine);
+            }
+            for (byte[] s : stringheUtf8) {
+                out.write(s);
+            }
+        }
+    }
+
+    private static int indiceStringa(String s, Map<String, Integer> indice, List<byte[]> stringhe) {
+        if (s == null) {
+            return -1;
+        }
+        return indice.computeIfAbsent(s, chiave -> {
+            stringhe.add(chiave.getBytes(StandardCharsets.UTF_8));
+            return stringhe.size() - 1;
+        });
+    }
+
+    /* ───────────────────────────  CONVERSIONE  ─────────────────────────── */
+
+    //Converte un file JSON della libreria nel formato binario
+    public static void daJSON(Path json, Path binario) throws IOException {
+        Gson gson = new Gson();
+        List<Libro> libri = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(json, StandardCharsets.UTF_8))) {
+            if (reader.peek() != JsonToken.NULL) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    libri.add(gson.fromJson(reader, Libro.class));
+                }
+                reader.endArray();
+            }
+        }
+        scrivi(libri, binario);
+    }
+
+    //Converte uno snapshot binario nel file JSON usato dall'applicazione
+    public static void inJSON(Path binario, Path json) throws IOException {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer writer = Files.newBufferedWriter(json, StandardCharsets.UTF_8)) {
+            gson.toJson(apri(binario), writer);
+        }
+    }
+}
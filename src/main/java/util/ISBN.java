@@ -0,0 +1,140 @@
+package util;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Lettura degli ISBN senza allocazioni: trattini e spazi vengono saltati carattere per carattere
+ * e le cifre accumulate direttamente in un long.
+ * Ogni ISBN riconosciuto ha una chiave canonica: il valore numerico delle 13 cifre.
+ * Un ISBN-10 con checksum corretto riceve la chiave del corrispondente ISBN-13 (prefisso 978),
+ * così "88-04-12345-X" e "978-88-04-12345-?" sono lo stesso libro; un ISBN-10 con checksum
+ * sbagliato riceve una chiave oltre le 13 cifre, distinta da tutte le altre.
+ */
+public final class ISBN {
+
+    public static final long NESSUNA_CHIAVE = -1;
+    public static final long LIMITE_13 = 10_000_000_000_000L; //le chiavi sotto questo valore sono ISBN-13
+    //Ordine tra i codici usato a parità di criterio dagli ordinamenti della libreria (null per primi)
+    public static final Comparator<String> ORDINE = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private ISBN() {}
+
+    //Chiave canonica, NESSUNA_CHIAVE se il testo non ha la forma di un ISBN-10 o ISBN-13
+    public static long chiave(CharSequence isbn) {
+        if (isbn == null) {
+            return NESSUNA_CHIAVE;
+        }
+        long valore = 0;
+        int cifre = 0;
+        int ultima = -1; //valore dell'ultimo carattere di controllo (10 per la X)
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || Character.isWhitespace(c)) {
+                continue;
+            }
+            if (ultima == 10 || cifre == 13) {
+                return NESSUNA_CHIAVE; //niente dopo la X e al massimo 13 cifre
+            }
+            if (c >= '0' && c <= '9') {
+                valore = valore * 10 + (c - '0');
+                ultima = c - '0';
+                cifre++;
+            } else if ((c == 'X' || c == 'x') && cifre == 9) {
+                ultima = 10;
+                cifre++;
+            } else {
+                return NESSUNA_CHIAVE;
+            }
+        }
+        if (cifre == 13) {
+            return valore;
+        }
+        if (cifre != 10) {
+            return NESSUNA_CHIAVE;
+        }
+        long prime9 = ultima == 10 ? valore : valore / 10;
+        if (controllo10(prime9) != ultima) {
+            return LIMITE_13 + prime9 * 11 + ultima;
+        }
+        long senzaControllo = 978_000_000_000L + prime9;
+        return senzaControllo * 10 + controllo13(senzaControllo);
+    }
+
+    //Forma canonica dell'ISBN: le 13 cifre della chiave, così un ISBN-10 e il suo ISBN-13, con o senza
+    //trattini, danno la stessa stringa. Per i codici che non sono ISBN toglie trattini e spazi e porta
+    //le lettere in maiuscolo
+    public static String normalizza(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String canonico = comeTesto(chiave(isbn));
+        if (canonico != null) {
+            return canonico;
+        }
+        StringBuilder sb = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || Character.isWhitespace(c)) {
+                continue;
+            }
+            sb.append(Character.toUpperCase(c));
+        }
+        return sb.toString();
+    }
+
+    //true se i due codici indicano lo stesso libro; per gli ISBN confronta le chiavi senza creare stringhe
+    public static boolean uguali(String a, String b) {
+        long chiaveA = chiave(a);
+        long chiaveB = chiave(b);
+        if (chiaveA != NESSUNA_CHIAVE || chiaveB != NESSUNA_CHIAVE) {
+            return chiaveA == chiaveB;
+        }
+        return Objects.equals(normalizza(a), normalizza(b));
+    }
+
+    //Hash coerente con uguali
+    public static int hash(String isbn) {
+        long chiave = chiave(isbn);
+        return chiave != NESSUNA_CHIAVE ? Long.hashCode(chiave) : Objects.hashCode(normalizza(isbn));
+    }
+
+    //true se il testo è un ISBN-10 o ISBN-13 con la cifra di controllo corretta
+    public static boolean isValido(CharSequence isbn) {
+        long chiave = chiave(isbn);
+        return chiave != NESSUNA_CHIAVE && chiave < LIMITE_13 && controllo13(chiave / 10) == chiave % 10;
+    }
+
+    //Le 13 cifre della chiave (con gli zeri iniziali), null se la chiave non è di un ISBN-13
+    public static String comeTesto(long chiave) {
+        if (chiave < 0 || chiave >= LIMITE_13) {
+            return null;
+        }
+        char[] cifre = new char[13];
+        for (int i = 12; i >= 0; i--) {
+            cifre[i] = (char) ('0' + chiave % 10);
+            chiave /= 10;
+        }
+        return new String(cifre);
+    }
+
+    //Cifra di controllo ISBN-10 (10 = X) delle prime 9 cifre: somma pesata da 10 a 2, modulo 11
+    private static int controllo10(long prime9) {
+        int somma = 0;
+        for (int peso = 2; peso <= 10; peso++) {
+            somma += (int) (prime9 % 10) * peso;
+            prime9 /= 10;
+        }
+        return (11 - somma % 11) % 11;
+    }
+
+    //Cifra di controllo EAN-13 delle prime 12 cifre: pesi alternati 1 e 3, modulo 10
+    private static int controllo13(long prime12) {
+        int somma = 0;
+        for (int i = 0; i < 12; i++) {
+            somma += (int) (prime12 % 10) * (i % 2 == 0 ? 3 : 1);
+            prime12 /= 10;
+        }
+        return (10 - somma % 10) % 10;
+    }
+}
@@ -4,16 +4,17 @@ public final class ISBNvalido {
 
     private ISBNvalido(){}
 
+    //Controllo di plausibilità senza regex né copie della stringa: la lettura è quella di ISBN.chiave,
+    //la cifra di controllo non viene verificata (per quella c'è ISBN.isValido)
     public static boolean isISBN(String isbn){
-        if(isbn == null) return false;
-        String isbnval = isbn.trim();
+        long chiave = ISBN.chiave(isbn);
+        if(chiave == ISBN.NESSUNA_CHIAVE) return false;
 
-        //ISBN-10: devono essere inserite 10 cifre
-        if(isbnval.matches("[0-9]{10}")){
-            return true;
-        }
+        //ISBN-10: 10 cifre (o 9 e la X); con checksum corretto la chiave è già quella dell'ISBN-13 978
+        if(chiave >= ISBN.LIMITE_13) return true;
 
-        //ISBN-13: devono essere inserite le prime tre cifre (978 o 979) seguite da - e 10 cifre
-        return isbnval.matches("97[89]-[0-9]{10}");
+        //ISBN-13: le prime tre cifre devono essere 978 o 979
+        long prefisso = chiave / 10_000_000_000L;
+        return prefisso == 978 || prefisso == 979;
     }
 }
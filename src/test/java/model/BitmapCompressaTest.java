@@ -0,0 +1,44 @@
+package model;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test di {@link BitmapCompressa}, confrontata con un TreeSet.
+ */
+class BitmapCompressaTest {
+
+    @Test
+    @DisplayName("Bitmap compresse: stesse operazioni di un TreeSet, anche oltre la soglia dei blocchi")
+    void testBitmapCompressa() {
+        Random random = new Random(3);
+        BitmapCompressa a = new BitmapCompressa(), b = new BitmapCompressa();
+        TreeSet<Integer> attesoA = new TreeSet<>(), attesoB = new TreeSet<>();
+        for (int i = 0; i < 30_000; i++) {
+            int x = random.nextInt(140_000), y = random.nextInt(10_000);
+            a.aggiungi(x);
+            attesoA.add(x);
+            b.aggiungi(y);
+            attesoB.add(y);
+            if (i % 3 == 0) {
+                int r = random.nextInt(140_000);
+                a.rimuovi(r);
+                attesoA.remove(r);
+            }
+        }
+        assertArrayEquals(attesoA.stream().mapToInt(Integer::intValue).toArray(), a.comeArray());
+        assertEquals(attesoA.size(), a.cardinalita());
+
+        TreeSet<Integer> intersezione = new TreeSet<>(attesoA);
+        intersezione.retainAll(attesoB);
+        TreeSet<Integer> unione = new TreeSet<>(attesoA);
+        unione.addAll(attesoB);
+        assertArrayEquals(intersezione.stream().mapToInt(Integer::intValue).toArray(), BitmapCompressa.intersezione(a, b).comeArray());
+        assertArrayEquals(unione.stream().mapToInt(Integer::intValue).toArray(), BitmapCompressa.unione(a, b).comeArray());
+        assertEquals(unione.size(), BitmapCompressa.unione(a, b).cardinalita());
+    }
+}
@@ -41,6 +41,8 @@ class LibreriaTest {
 
     @AfterEach
     void tearDown() throws Exception {
+        libreria.chiudi();                // niente salvataggi in sospeso verso il file del test successivo
+        persistence.SingletonJSON.getInstance().setJournal(false);
         Files.deleteIfExists(tempJson);   // pulizia file di test
     }
 
@@ -76,6 +78,46 @@ class LibreriaTest {
         assertEquals(1, libreria.getLibri().size());
     }
 
+    @Test
+    @DisplayName("Aggiunta duplicato ISBN senza trattino: fallisce")
+    void testAggiuntaDuplicatoNormalizzato() {
+        libreria.aggiungiLibro(libro1);
+        assertFalse(libreria.aggiungiLibro(new Libro("Altro Titolo", "DDDD","9780000000001", "Narrativa",2022)));
+        assertEquals(1, libreria.getLibri().size());
+    }
+
+    @Test
+    @DisplayName("Ricerca per ISBN: usa l'indice primario")
+    void testRicercaPerIsbn() {
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        libreria.setRicStrategy(new is.strategy.RicPerISBN());
+        assertEquals(java.util.List.of(libro2), libreria.cercaLib("9780000000002"));
+        assertTrue(libreria.cercaLib("978-0000000077").isEmpty());
+        // la scansione della lista dà gli stessi risultati dell'indice
+        assertEquals(java.util.List.of(libro2), new is.strategy.RicPerISBN().cerca(libreria.getLibri(), "9780000000002"));
+    }
+
+    @Test
+    @DisplayName("Ricerca per titolo e autore con l'indice a trigrammi")
+    void testRicercaTrigrammi() {
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        libreria.aggiungiLibro(libro3);
+        libreria.setRicStrategy(new is.strategy.RicPerTitoloIndicizzata());
+        assertEquals(java.util.List.of(libro2, libro3, libro1), libreria.cercaLib("LIBRO"));
+        assertEquals(java.util.List.of(libro3), libreria.cercaLib("o tr"));
+        assertTrue(libreria.cercaLib("uno tre").isEmpty());
+
+        // l'indice segue le modifiche
+        libreria.modificaLibro(libro3, new Libro("Altro", "CCCC", "978-0000000003", "Fantasy", 2019));
+        assertTrue(libreria.cercaLib("o tr").isEmpty());
+        libreria.rimuoviLibro(libro1);
+        libreria.setRicStrategy(new is.strategy.RicPerAutoreIndicizzata());
+        assertTrue(libreria.cercaLib("aaa").isEmpty());
+        assertEquals(1, libreria.cercaLib("bb").size()); // ricerca corta: scansione completa
+    }
+
     @Test
     @DisplayName("Rimozione libro: successo")
     void testRimozioneLibro() {
@@ -104,6 +146,621 @@ class LibreriaTest {
         assertEquals(2, libreria.getLibri().size());
     }
 
+    @Test
+    @DisplayName("Statistiche: conteggi, generi e anni seguono le modifiche")
+    void testStatistiche() {
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        libreria.aggiungiLibro(libro3);
+        Libro letto = new Libro("Libro Tre", "CCCC", "978-0000000003", "Saggio", 2023);
+        letto.setStatoLettura(Libro.StatoLettura.LETTO);
+        libreria.modificaLibro(libro3, letto);
+        libreria.rimuoviLibro(libro1);
+
+        StatisticheLibreria statistiche = libreria.getStatistiche();
+        assertEquals(2, statistiche.getTotale());
+        assertEquals(1, statistiche.getLetti());
+        assertEquals(java.util.List.of("Saggio"), statistiche.getGeneri());
+        assertEquals(2, statistiche.getNumeroPerGenere("Saggio"));
+        assertEquals(2021, statistiche.getAnnoMin().getAsInt());
+        assertEquals(2023, statistiche.getAnnoMax().getAsInt());
+    }
+
+    /* ───────────────────────  ORDINAMENTO INCREMENTALE  ───────────────────────── */
+
+    @Test
+    @DisplayName("Ordinamento: aggiunte e modifiche mantengono la lista ordinata")
+    void testOrdinamentoIncrementale() {
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < 200; i++) {
+            libreria.aggiungiLibro(new Libro("T" + random.nextInt(1000), "Aut", String.format("978-%010d", i), "G", 1900 + random.nextInt(120)));
+        }
+        for (int i = 0; i < 50; i++) {
+            Libro vecchio = libreria.getLibri().get(random.nextInt(200));
+            libreria.modificaLibro(vecchio, new Libro("T" + random.nextInt(1000), "Aut", vecchio.getIsbn(), "G", 1900 + random.nextInt(120)));
+        }
+        assertOrdinata(new is.strategy.OrdPerTitolo());
+
+        libreria.setOrdStrategy(new is.strategy.OrdPerAnno());
+        for (int i = 0; i < 50; i++) {
+            Libro vecchio = libreria.getLibri().get(random.nextInt(libreria.getLibri().size()));
+            libreria.modificaLibro(vecchio, new Libro("X", "Aut", vecchio.getIsbn(), "G", 1900 + random.nextInt(120)));
+            libreria.rimuoviLibro(libreria.getLibri().get(random.nextInt(libreria.getLibri().size())));
+        }
+        assertEquals(150, libreria.getLibri().size());
+        assertOrdinata(new is.strategy.OrdPerAnno());
+    }
+
+    @Test
+    @DisplayName("Ordinamento per titolo: collazione italiana con chiavi in cache")
+    void testOrdinamentoCollazione() {
+        Libro zeta = new Libro("zeta", "A", "978-0000000010", "G", 2000);
+        Libro ebano = new Libro("Èbano", "A", "978-0000000011", "G", 2000);
+        Libro fiume = new Libro("Fiume", "A", "978-0000000012", "G", 2000);
+        libreria.aggiungiLibro(zeta);
+        libreria.aggiungiLibro(ebano);
+        libreria.aggiungiLibro(fiume);
+        assertEquals(java.util.List.of(ebano, fiume, zeta), libreria.getLibri());
+
+        // il setter invalida la chiave in cache
+        java.text.CollationKey prima = fiume.getChiaveTitolo();
+        fiume.setTitolo("Acqua");
+        assertNotSame(prima, fiume.getChiaveTitolo());
+        assertTrue(fiume.getChiaveTitolo().compareTo(ebano.getChiaveTitolo()) < 0);
+    }
+
+    @Test
+    @DisplayName("Colonne: filtri e ordinamento per anno uguali a quelli sugli oggetti")
+    void testFiltroSulleColonne() {
+        java.util.Random random = new java.util.Random(7);
+        Libro.StatoLettura[] stati = Libro.StatoLettura.values();
+        for (int i = 0; i < 300; i++) {
+            Libro libro = new Libro("T" + i, "Aut", String.format("978-%010d", i), "G" + random.nextInt(4), 1950 + random.nextInt(70));
+            libro.setStatoLettura(stati[random.nextInt(stati.length)]);
+            if (libro.getStatoLettura() == Libro.StatoLettura.LETTO) {
+                libro.setValutazione(1 + random.nextInt(5));
+            }
+            libreria.aggiungiLibro(libro);
+        }
+        for (int i = 0; i < 40; i++) {
+            libreria.rimuoviLibro(libreria.getLibri().get(random.nextInt(libreria.getLibri().size())));
+        }
+
+        FiltroLibri filtro = FiltroLibri.tutti().conGenere("G1").conAnni(1960, 2000);
+        java.util.List<Libro> attesi = libreria.getLibri().stream().filter(filtro::accetta).toList();
+        assertEquals(attesi, libreria.filtra(filtro));
+
+        FiltroLibri letti = FiltroLibri.tutti().conStato(Libro.StatoLettura.LETTO).conValutazioneMin(3);
+        assertTrue(libreria.filtra(letti).stream().allMatch(l -> l.getValutazione() >= 3));
+
+        libreria.setOrdStrategy(new is.strategy.OrdPerAnno());
+        assertEquals(260, libreria.getLibri().size());
+        assertOrdinata(new is.strategy.OrdPerAnno());
+        java.util.List<Libro> perAnno = libreria.filtra(filtro);
+        assertEquals(attesi.size(), perAnno.size());
+        for (int i = 1; i < perAnno.size(); i++) {
+            assertTrue(perAnno.get(i - 1).getAnnoPubblicazione() <= perAnno.get(i).getAnnoPubblicazione());
+        }
+    }
+
+    @Test
+    @DisplayName("Ricerca avanzata: stesso risultato del filtro completo, qualunque indice usi")
+    void testRicercaAvanzata() {
+        java.util.Random random = new java.util.Random(11);
+        String[] parole = {"Mare", "Notte", "Fiume", "Città", "Vento"};
+        for (int i = 0; i < 300; i++) {
+            Libro libro = new Libro(parole[random.nextInt(5)] + " " + i, "Autore " + random.nextInt(20),
+                    String.format("978-%010d", i), "G" + random.nextInt(4), 1950 + random.nextInt(70));
+            libro.setStatoLettura(Libro.StatoLettura.values()[random.nextInt(3)]);
+            libreria.aggiungiLibro(libro);
+        }
+
+        FiltroLibri filtro = FiltroLibri.tutti().conGenere("G2").conAnni(1970, 2000);
+        String[][] criteri = {{"notte", "", ""}, {"", "autore 1", ""}, {"", "", ""}, {"Mare", "Autore", ""}, {"", "", "9780000000042"}};
+        for (String[] c : criteri) {
+            is.strategy.RicercaAvanzata ricerca = new is.strategy.RicercaAvanzata(c[0], c[1], c[2], filtro);
+            java.util.List<Libro> attesi = libreria.getLibri().stream()
+                    .filter(filtro::accetta)
+                    .filter(l -> l.getTitolo().toLowerCase().contains(c[0].toLowerCase()))
+                    .filter(l -> l.getAutore().toLowerCase().contains(c[1].toLowerCase()))
+                    .filter(l -> c[2].isEmpty() || IndiciLibreria.normalizzaIsbn(l.getIsbn()).equals(c[2]))
+                    .toList();
+            libreria.setRicStrategy(ricerca);
+            assertEquals(attesi, libreria.cercaLib(null), "criteri " + java.util.Arrays.toString(c));
+            assertEquals(attesi, ricerca.cerca(libreria.getLibri(), null)); //scansione senza indici
+        }
+    }
+
+    @Test
+    @DisplayName("Facette: generi in OR, stati in OR, le due voci in AND")
+    void testFacette() {
+        Libro.StatoLettura[] stati = Libro.StatoLettura.values();
+        for (int i = 0; i < 120; i++) {
+            Libro libro = new Libro("T" + i, "Aut", String.format("978-%010d", i), "G" + i % 5, 2000);
+            libro.setStatoLettura(stati[i % 3]);
+            libreria.aggiungiLibro(libro);
+        }
+        libreria.rimuoviLibro(libreria.getLibri().get(0));
+        libreria.modificaLibro(libreria.getLibri().get(0), new Libro("X", "Aut", libreria.getLibri().get(0).getIsbn(), "G9", 2000));
+
+        java.util.List<String> generi = java.util.List.of("G1", "G3");
+        java.util.List<Libro.StatoLettura> letti = java.util.List.of(Libro.StatoLettura.LETTO, Libro.StatoLettura.IN_LETTURA);
+        java.util.List<Libro> attesi = libreria.getLibri().stream()
+                .filter(l -> generi.contains(l.getGenere()) && letti.contains(l.getStatoLettura())).toList();
+        assertEquals(attesi, libreria.filtraPerFacette(generi, letti));
+        assertEquals(attesi.size(), libreria.contaPerFacette(generi, letti));
+        assertEquals(1, libreria.contaPerFacette(java.util.List.of("G9"), null));
+        assertEquals(libreria.getLibri().size(), libreria.contaPerFacette(null, null));
+    }
+
+    @Test
+    @DisplayName("Indice degli anni: intervalli, estremi e ordinamento seguono le modifiche")
+    void testIndiceAnni() {
+        java.util.Random random = new java.util.Random(5);
+        for (int i = 0; i < 200; i++) {
+            libreria.aggiungiLibro(new Libro("T" + i, "Aut", String.format("978-%010d", i), "G", 1900 + random.nextInt(100)));
+        }
+        Libro primo = new Libro("Antico", "Aut", "978-0000001000", "G", 1500);
+        libreria.aggiungiLibro(primo);
+        assertEquals(1500, libreria.getStatistiche().getAnnoMin().getAsInt());
+        libreria.rimuoviLibro(primo);
+        int minimo = libreria.getLibri().stream().mapToInt(Libro::getAnnoPubblicazione).min().getAsInt();
+        assertEquals(minimo, libreria.getStatistiche().getAnnoMin().getAsInt());
+
+        java.util.List<Libro> attesi = libreria.getLibri().stream()
+                .filter(l -> l.getAnnoPubblicazione() >= 1930 && l.getAnnoPubblicazione() <= 1950).toList();
+        assertEquals(attesi, libreria.filtra(FiltroLibri.tutti().conAnni(1930, 1950)));
+
+        libreria.setOrdStrategy(new is.strategy.OrdPerAnno());
+        assertEquals(200, libreria.getLibri().size());
+        assertOrdinata(new is.strategy.OrdPerAnno());
+    }
+
+    @Test
+    @DisplayName("Ordinamento per anno: filtri e facette restituiscono i libri nell'ordine della lista")
+    void testOrdinePariAnno() {
+        java.util.Random random = new java.util.Random(11);
+        libreria.setOrdStrategy(new is.strategy.OrdPerAnno());
+        for (int i = 0; i < 300; i++) {
+            libreria.aggiungiLibro(new Libro("T" + i, "Aut", String.format("978-%010d", random.nextInt(1_000_000)),
+                    i % 2 == 0 ? "G" : "H", 2000 + random.nextInt(3)));
+        }
+        for (int i = 0; i < 50; i++) { // id riusati: l'ordine degli id non è più quello di inserimento
+            Libro scelto = libreria.getLibri().get(random.nextInt(libreria.getLibri().size()));
+            libreria.rimuoviLibro(scelto);
+            libreria.aggiungiLibro(new Libro(scelto.getTitolo(), "Aut", String.format("978-%010d", random.nextInt(1_000_000)),
+                    scelto.getGenere(), scelto.getAnnoPubblicazione()));
+        }
+        assertOrdinata(new is.strategy.OrdPerAnno());
+
+        java.util.List<Libro> attesi = libreria.getLibri().stream().filter(l -> "G".equals(l.getGenere())).toList();
+        assertEquals(attesi, libreria.filtra(FiltroLibri.tutti().conGenere("G")));
+        assertEquals(attesi, libreria.filtraPerFacette(java.util.List.of("G"), null));
+
+        libreria.setOrdStrategy(new is.strategy.OrdPerTitolo());
+        libreria.setOrdStrategy(new is.strategy.OrdPerAnno()); // riordino dalla visita dell'indice degli anni
+        assertEquals(attesi, libreria.filtra(FiltroLibri.tutti().conGenere("G")));
+        assertOrdinata(new is.strategy.OrdPerAnno());
+    }
+
+    private void assertOrdinata(is.strategy.OrdStrategy strategia) {
+        java.util.List<Libro> libri = libreria.getLibri();
+        for (int i = 1; i < libri.size(); i++) {
+            assertTrue(strategia.comparatore().compare(libri.get(i - 1), libri.get(i)) < 0, "lista non ordinata in posizione " + i);
+        }
+    }
+
+    /* ───────────────────────  EVENTI OBSERVER  ───────────────────────── */
+
+    @Test
+    @DisplayName("Observer: applicando gli eventi si ottiene la stessa lista della libreria")
+    void testEventiModifica() {
+        java.util.List<Libro> copia = new java.util.ArrayList<>();
+        libreria.attach(new observer.Observer() {
+            @Override
+            public void update(java.util.List<Libro> libri) {
+                copia.clear();
+                copia.addAll(libri);
+            }
+
+            @Override
+            public void aggiorna(observer.Modifica m, java.util.List<Libro> libri) {
+                switch (m.tipo()) {
+                    case AGGIUNTO -> copia.add(m.indice(), m.libro());
+                    case RIMOSSO -> copia.remove(m.indice());
+                    case AGGIORNATO -> copia.set(m.indice(), m.libro());
+                    case SPOSTATO -> {
+                        copia.remove(m.daIndice());
+                        copia.add(m.indice(), m.libro());
+                    }
+                    case RESET -> update(m.libri());
+                }
+            }
+        });
+
+        java.util.Random random = new java.util.Random(7);
+        for (int i = 0; i < 100; i++) {
+            libreria.aggiungiLibro(new Libro("T" + random.nextInt(50), "Aut", String.format("978-%010d", i), "G", 2000));
+        }
+        for (int i = 0; i < 100; i++) {
+            java.util.List<Libro> libri = libreria.getLibri();
+            Libro scelto = libri.get(random.nextInt(libri.size()));
+            if (i % 3 == 0) {
+                libreria.rimuoviLibro(scelto);
+            } else {
+                libreria.modificaLibro(scelto, new Libro("T" + random.nextInt(50), "Aut", scelto.getIsbn(), "G", 2000));
+            }
+            assertEquals(libreria.getLibri(), copia);
+        }
+        libreria.setOrdStrategy(new is.strategy.OrdPerAnno());
+        assertEquals(libreria.getLibri(), copia);
+    }
+
+    /* ───────────────────────  PAGINAZIONE  ───────────────────────── */
+
+    @Test
+    @DisplayName("Pagine: il cursore resta valido anche se la lista cambia tra una pagina e l'altra")
+    void testPaginazione() {
+        for (int i = 0; i < 250; i++) {
+            libreria.aggiungiLibro(new Libro(String.format("T%03d", i), i % 2 == 0 ? "Pari" : "Dispari",
+                    String.format("978-%010d", i), "G", 2000));
+        }
+        Pagina prima = libreria.getPagina(100, null);
+        assertEquals(100, prima.libri().size());
+        assertEquals(250, prima.totaleStimato());
+        assertEquals("T099", prima.libri().get(99).getTitolo());
+
+        libreria.aggiungiLibro(new Libro("T000bis", "Pari", "978-0000001000", "G", 2000)); // prima del cursore
+        libreria.rimuoviLibro(libreria.getLibri().get(101));                            // primo della pagina dopo
+        Pagina seconda = libreria.getPagina(100, prima.successivo());
+        assertEquals("T101", seconda.libri().get(0).getTitolo());
+        Pagina terza = libreria.getPagina(100, seconda.successivo());
+        assertEquals(49, terza.libri().size());
+        assertTrue(terza.isUltima());
+
+        // ricerca a scansione: si ferma a pagina piena, poi riparte dal cursore
+        libreria.setRicStrategy(new is.strategy.RicPerAutore());
+        Pagina risultati = libreria.cercaPagina("dispari", 40, null);
+        assertEquals(40, risultati.libri().size());
+        assertFalse(risultati.totaleEsatto());
+        assertEquals(125, risultati.totaleStimato(), 5);
+        java.util.List<Libro> tutti = new java.util.ArrayList<>(risultati.libri());
+        while (!risultati.isUltima()) {
+            risultati = libreria.cercaPagina("dispari", 40, risultati.successivo());
+            tutti.addAll(risultati.libri());
+        }
+        assertEquals(libreria.cercaLib("dispari"), tutti);
+
+        // ricerca dagli indici: risultati completi tagliati a pagine
+        libreria.setRicStrategy(new is.strategy.RicPerTitoloIndicizzata());
+        assertEquals(java.util.List.of("T120", "T121"), libreria.cercaPagina("T12", 2, null).libri().stream().map(Libro::getTitolo).toList());
+
+        Pagina.Cursore cursore = libreria.getPagina(10, null).successivo();
+        libreria.setOrdStrategy(new is.strategy.OrdPerAnno());
+        assertThrows(IllegalStateException.class, () -> libreria.getPagina(10, cursore));
+    }
+
+    @Test
+    @DisplayName("Pagine: tolto il libro del cursore tra libri dello stesso anno non si salta nessun libro")
+    void testPaginazioneCursoreRimosso() {
+        libreria.setOrdStrategy(new is.strategy.OrdPerAnno());
+        for (int i = 0; i < 12; i++) {
+            libreria.aggiungiLibro(new Libro("T" + i, "Aut", String.format("978-%010d", (i * 7) % 12), "G", 2000));
+        }
+        java.util.List<Libro> tutti = libreria.getLibri();
+        Pagina prima = libreria.getPagina(4, null);
+        libreria.rimuoviLibro(prima.libri().get(3));
+        Pagina seconda = libreria.getPagina(4, prima.successivo());
+        assertEquals(tutti.subList(4, 8), seconda.libri());
+
+        Libro ultimo = seconda.libri().get(3);
+        libreria.modificaLibro(ultimo, new Libro("Modificato", "Aut", ultimo.getIsbn(), "G", 2000));
+        Pagina terza = libreria.getPagina(4, seconda.successivo());
+        assertEquals(tutti.subList(8, 12), terza.libri());
+        assertTrue(terza.isUltima());
+    }
+
+    /* ───────────────────────  RICERCA PARALLELA  ───────────────────────── */
+
+    @Test
+    @DisplayName("Ricerca parallela: stessi risultati nello stesso ordine, annullabile a metà")
+    void testRicercaParallela() {
+        java.util.Random random = new java.util.Random(9);
+        libreria.inBatch(tx -> {
+            for (int i = 0; i < 60_000; i++) {
+                tx.aggiungi(new Libro("Titolo " + random.nextInt(100_000), "Autore " + random.nextInt(500),
+                        String.format("978-%010d", i), "G" + random.nextInt(8), 1900 + random.nextInt(120)));
+            }
+        });
+        FiltroLibri filtro = FiltroLibri.tutti().conValutazioneMin(0); // nessun indice restringe: scansione delle colonne
+        libreria.setRicStrategy(new is.strategy.RicPerTitolo());
+        java.util.List<Libro> perTitolo = libreria.cercaLib("12");
+        java.util.List<Libro> filtrati = libreria.filtra(filtro);
+        libreria.setRicStrategy(new is.strategy.RicercaAvanzata("", "autore 4", "", FiltroLibri.tutti()));
+        java.util.List<Libro> avanzata = libreria.cercaLib(null);
+
+        libreria.setRicercaParallela(true);
+        libreria.ordinaLib(); // nuova versione: i risultati sequenziali in cache non valgono più
+        libreria.setRicStrategy(new is.strategy.RicPerTitolo());
+        assertEquals(perTitolo, libreria.cercaLib("12"));
+        assertEquals(filtrati, libreria.filtra(filtro));
+        libreria.setRicStrategy(new is.strategy.RicercaAvanzata("", "autore 4", "", FiltroLibri.tutti()));
+        assertEquals(avanzata, libreria.cercaLib(null));
+
+        // annullamento durante la ricerca: la condizione lo chiede a metà catalogo
+        RicercaParallela.Annullamento annullamento = new RicercaParallela.Annullamento();
+        java.util.concurrent.atomic.AtomicInteger esaminati = new java.util.concurrent.atomic.AtomicInteger();
+        libreria.setRicStrategy(new is.strategy.RicPerTitolo() {
+            @Override
+            public java.util.function.Predicate<Libro> condizione(String titolo) {
+                return l -> {
+                    if (esaminati.incrementAndGet() == 30_000) {
+                        annullamento.annulla();
+                    }
+                    return true;
+                };
+            }
+        });
+        assertThrows(java.util.concurrent.CancellationException.class, () -> libreria.cercaLib("x", annullamento));
+        assertTrue(esaminati.get() < 60_000);
+    }
+
+    /* ───────────────────────  CACHE DELLE RICERCHE  ───────────────────────── */
+
+    @Test
+    @DisplayName("Cache: le ricerche ripetute non ricalcolano, ogni modifica invalida")
+    void testCacheRicerche() {
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        libreria.setRicStrategy(new is.strategy.RicPerAutoreIndicizzata());
+        java.util.List<Libro> prima = libreria.cercaLib("aaaa");
+        assertSame(prima, libreria.cercaLib("AAAA"));  // stesso criterio normalizzato
+        assertEquals(1, libreria.getStatisticheCache().successi());
+        assertThrows(UnsupportedOperationException.class, () -> prima.add(libro3));
+
+        libreria.aggiungiLibro(new Libro("Altro", "aaaa", "978-0000000055", "G", 2000));
+        assertEquals(2, libreria.cercaLib("aaaa").size());
+        libreria.modificaLibro(libro1, new Libro("Libro Uno", "ZZZZ", libro1.getIsbn(), "Narrativo", 2020));
+        java.util.List<Libro> dopoModifica = libreria.cercaLib("aaaa");
+        assertEquals(1, dopoModifica.size());
+        libreria.caricaLib();
+        assertNotSame(dopoModifica, libreria.cercaLib("aaaa"));
+
+        // filtri e ricerca avanzata: la chiave sono i criteri, non l'oggetto strategia
+        assertSame(libreria.filtra(FiltroLibri.tutti().conGenere("Saggio")), libreria.filtra(FiltroLibri.tutti().conGenere("Saggio")));
+        libreria.setRicStrategy(new is.strategy.RicercaAvanzata(" Libro ", "", "", FiltroLibri.tutti()));
+        java.util.List<Libro> avanzata = libreria.cercaLib(null);
+        libreria.setRicStrategy(new is.strategy.RicercaAvanzata("libro", null, null, FiltroLibri.tutti()));
+        assertSame(avanzata, libreria.cercaLib(null));
+
+        // oltre la capacità esce la ricerca usata meno di recente
+        libreria.setRicStrategy(new is.strategy.RicPerTitolo());
+        libreria.cercaLib("q0");
+        for (int i = 1; i <= 128; i++) {
+            libreria.cercaLib("q" + i);
+        }
+        long mancati = libreria.getStatisticheCache().mancati();
+        libreria.cercaLib("q0");
+        assertEquals(mancati + 1, libreria.getStatisticheCache().mancati());
+        assertEquals(128, libreria.getStatisticheCache().voci());
+
+        // capacità 0: la cache si svuota e non memorizza più nulla
+        libreria.setCapacitaCache(0);
+        assertEquals(0, libreria.getStatisticheCache().voci());
+        assertNotSame(libreria.cercaLib("q0"), libreria.cercaLib("q0"));
+
+        // stesso contratto con e senza cache: i risultati non sono modificabili
+        assertThrows(UnsupportedOperationException.class, () -> libreria.cercaLib("q0").add(libro1));
+        assertThrows(UnsupportedOperationException.class, () -> libreria.filtraPerFacette(null, null).add(libro1));
+    }
+
+    /* ───────────────────────  ISTANTANEE  ───────────────────────── */
+
+    @Test
+    @DisplayName("Istantanee: una lista già letta non cambia con le modifiche successive")
+    void testIstantaneaImmutabile() {
+        libreria.aggiungiLibro(libro1);
+        java.util.List<Libro> prima = libreria.getLibri();
+        libreria.aggiungiLibro(libro2);
+        libreria.rimuoviLibro(libro1);
+
+        assertEquals(java.util.List.of(libro1), prima);
+        assertEquals(java.util.List.of(libro2), libreria.getLibri());
+        assertThrows(UnsupportedOperationException.class, () -> prima.add(libro3));
+    }
+
+    @Test
+    @DisplayName("Lista persistente: inserimenti e rimozioni come un ArrayList")
+    void testListaPersistente() {
+        java.util.Random random = new java.util.Random(3);
+        java.util.List<Integer> atteso = new java.util.ArrayList<>();
+        ListaPersistente<Integer> lista = ListaPersistente.vuota();
+        for (int i = 0; i < 5000; i++) {
+            int pos = random.nextInt(atteso.size() + 1);
+            atteso.add(pos, i);
+            lista = lista.conInserito(pos, i);
+        }
+        for (int i = 0; i < 4900; i++) {
+            int pos = random.nextInt(atteso.size());
+            if (i % 5 == 0) {
+                atteso.set(pos, -i);
+                lista = lista.conSostituito(pos, -i);
+            } else {
+                atteso.remove(pos);
+                lista = lista.conRimosso(pos);
+            }
+        }
+        assertEquals(atteso, lista);
+        assertEquals(atteso, new java.util.ArrayList<>(lista)); // iteratore per blocchi
+    }
+
+    @Test
+    @DisplayName("Letture concorrenti alle scritture: ricerche sempre coerenti")
+    void testLettureConcorrenti() throws InterruptedException {
+        libreria.setRicStrategy(new is.strategy.RicPerTitoloIndicizzata());
+        java.util.concurrent.atomic.AtomicBoolean errore = new java.util.concurrent.atomic.AtomicBoolean();
+        Thread scrittore = new Thread(() -> {
+            for (int i = 0; i < 300; i++) {
+                libreria.aggiungiLibro(new Libro("Titolo comune " + i, "Aut", String.format("978-%010d", i), "G", 2000));
+            }
+        });
+        Thread lettore = new Thread(() -> {
+            while (scrittore.isAlive()) {
+                for (Libro libro : libreria.cercaLib("comune")) {
+                    if (!libro.getTitolo().contains("comune")) {
+                        errore.set(true);
+                    }
+                }
+            }
+        });
+        scrittore.start();
+        lettore.start();
+        scrittore.join();
+        lettore.join();
+        assertFalse(errore.get());
+        assertEquals(300, libreria.cercaLib("comune").size());
+    }
+
+    /* ───────────────────────  SALVATAGGIO ASINCRONO  ───────────────────────── */
+
+    @Test
+    @DisplayName("Salvataggio asincrono: dopo flush() le modifiche sono su disco")
+    void testSalvataggioAsincrono() {
+        libreria.setFinestraSalvataggio(java.time.Duration.ofSeconds(10));
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        assertTrue(new Libreria().getLibri().isEmpty()); // ancora nella finestra di raggruppamento
+
+        libreria.flush().join();
+        assertEquals(2, new Libreria().getLibri().size());
+    }
+
+    @Test
+    @DisplayName("Salvataggio asincrono fallito: l'errore arriva al gestore, una volta per raffica")
+    void testErroreSalvataggio(@TempDir Path altraDir) throws Exception {
+        java.util.concurrent.atomic.AtomicInteger errori = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.CompletableFuture<Throwable> primo = new java.util.concurrent.CompletableFuture<>();
+        libreria.setGestoreErroriSalvataggio(e -> {
+            errori.incrementAndGet();
+            primo.complete(e);
+        });
+        Path cartella = Files.createDirectories(altraDir.resolve("libreria.json"));
+        Files.writeString(cartella.resolve("occupato"), "x"); // una cartella non vuota non può prendere il posto del JSON
+        persistence.SingletonJSON.overridePath(cartella);
+
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        assertThrows(java.util.concurrent.CompletionException.class, () -> libreria.flush().join());
+        assertInstanceOf(RuntimeException.class, primo.get(5, java.util.concurrent.TimeUnit.SECONDS));
+
+        persistence.SingletonJSON.overridePath(tempJson);
+        libreria.aggiungiLibro(libro3);
+        libreria.flush().join();
+        assertEquals(1, errori.get());
+        assertEquals(3, new Libreria().getLibri().size());
+    }
+
+    @Test
+    @DisplayName("Chiusura: le modifiche dopo chiudi vengono rifiutate senza toccare la libreria")
+    void testModificaDopoChiusura() {
+        libreria.aggiungiLibro(libro1);
+        java.util.concurrent.atomic.AtomicInteger notifiche = new java.util.concurrent.atomic.AtomicInteger();
+        libreria.attach(libri -> notifiche.incrementAndGet());
+        int notificheIniziali = notifiche.get();
+        long versione = libreria.getVersione();
+        libreria.chiudi();
+
+        assertThrows(IllegalStateException.class, () -> libreria.aggiungiLibro(libro2));
+        assertThrows(IllegalStateException.class, () -> libreria.rimuoviLibro(libro1));
+        assertThrows(IllegalStateException.class, () -> libreria.modificaLibro(libro1, libro3));
+        assertThrows(IllegalStateException.class, () -> libreria.inBatch(tx -> tx.aggiungi(libro2)));
+        assertEquals(java.util.List.of(libro1), libreria.getLibri());
+        assertEquals(versione, libreria.getVersione());
+        assertEquals(java.util.List.of(libro1), libreria.filtra(FiltroLibri.tutti())); // indici non toccati
+        assertEquals(notificheIniziali, notifiche.get());
+        assertEquals(1, new Libreria().getLibri().size());
+    }
+
+    @Test
+    @DisplayName("Dizionario: generi e autori ricaricati dal JSON condividono la stessa istanza")
+    void testStringheCondivise() {
+        libreria.aggiungiLibro(new Libro("Uno", new String("Eco"), "978-0000000011", new String("Romanzo"), 1980));
+        libreria.aggiungiLibro(new Libro("Due", new String("Eco"), "978-0000000012", new String("Romanzo"), 1988));
+        libreria.salvaLib();
+
+        java.util.List<Libro> riletti = new Libreria().getLibri();
+        assertSame(riletti.get(0).getAutore(), riletti.get(1).getAutore());
+        assertSame(riletti.get(0).getGenere(), riletti.get(1).getGenere());
+    }
+
+    @Test
+    @DisplayName("Batch: esiti per operazione, una sola notifica e lista ordinata")
+    void testInBatch() {
+        libreria.aggiungiLibro(libro1);
+        int[] notifiche = {0};
+        libreria.attach(libri -> notifiche[0]++);
+        notifiche[0] = 0;
+
+        Libro libro1Modificato = new Libro("Zeta", "AAAA", "978-0000000001", "Narrativo", 2020);
+        java.util.List<Boolean> esiti = libreria.inBatch(tx -> tx
+                .aggiungi(libro2)
+                .aggiungi(new Libro("Copia", "X", "9780000000002", "G", 2000))  // ISBN già aggiunto nel lotto
+                .aggiungi(libro3)
+                .rimuovi(libro3)
+                .modifica(libro1, libro1Modificato)
+                .rimuovi(new Libro("?", "?", "978-0000000077", "?", 2000)));    // assente
+
+        assertEquals(java.util.List.of(true, false, true, true, true, false), esiti);
+        assertEquals(1, notifiche[0]);
+        assertEquals(java.util.List.of(libro2, libro1Modificato), libreria.getLibri());
+        assertEquals(2, libreria.getStatistiche().getTotale());
+        assertTrue(libreria.cercaLib("Zeta").contains(libro1Modificato));
+
+        assertThrows(IllegalStateException.class, () -> libreria.inBatch(tx -> {
+            tx.aggiungi(libro3);
+            throw new IllegalStateException("annullato");
+        }));
+        assertEquals(2, libreria.getLibri().size()); // niente applicato
+
+        libreria.flush().join();
+        assertEquals(2, new Libreria().getLibri().size());
+    }
+
+    /* ───────────────────────  MODALITÀ JOURNAL  ───────────────────────── */
+
+    @Test
+    @DisplayName("Journal: le modifiche vengono riapplicate sopra lo snapshot")
+    void testJournalRiapplicato() {
+        persistence.SingletonJSON.getInstance().setJournal(true);
+        libreria = new Libreria();
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        libreria.rimuoviLibro(libro1);
+        Libro nuovo = new Libro("Nuovo Titolo", "EEEE","978-0000000099", "Horror", 2022);
+        libreria.modificaLibro(libro2, nuovo);
+
+        Libreria riletta = new Libreria();
+        assertEquals(1, riletta.getLibri().size());
+        assertEquals("Nuovo Titolo", riletta.getLibri().get(0).getTitolo());
+    }
+
+    @Test
+    @DisplayName("Journal: il salvataggio compatta il giornale in un nuovo snapshot")
+    void testJournalCheckpoint() throws Exception {
+        persistence.SingletonJSON.getInstance().setJournal(true);
+        libreria = new Libreria();
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro3);
+        libreria.salvaLib();
+
+        persistence.SingletonJSON.getInstance().setJournal(false);
+        try (var segmenti = Files.list(tempJson.getParent())) {
+            assertTrue(segmenti.noneMatch(p -> p.getFileName().toString().contains(".journal.")
+                    && p.toFile().length() > 0));
+        }
+        assertEquals(2, new Libreria().getLibri().size());
+    }
+
     /* ───────────────────────  VALIDAZIONE ISBN  ───────────────────────── */
 
     @Test
@@ -114,6 +771,54 @@ class LibreriaTest {
         assertFalse(ISBNvalido.isISBN("978-123"));           // troppo corto
     }
 
+    @Test
+    @DisplayName("ISBN: ISBN-10 e ISBN-13 dello stesso libro hanno la stessa chiave, con o senza trattini")
+    void testChiaveIsbn() {
+        long chiave = util.ISBN.chiave("978-0-306-40615-7");
+        assertEquals(9780306406157L, chiave);
+        assertEquals(chiave, util.ISBN.chiave("0-306-40615-2"));
+        assertEquals(chiave, util.ISBN.chiave("0306406152"));
+        assertTrue(util.ISBN.isValido("0-306-40615-2"));
+        assertFalse(util.ISBN.isValido("0-306-40615-3"));
+        assertNotEquals(chiave, util.ISBN.chiave("0-306-40615-3"));  // checksum sbagliato: chiave a parte
+        assertTrue(util.ISBN.isValido("0-8044-2957-X"));
+        assertEquals(util.ISBN.chiave("080442957X"), util.ISBN.chiave("978-0-8044-2957-3"));
+        assertEquals(util.ISBN.NESSUNA_CHIAVE, util.ISBN.chiave("978-0-306"));
+        assertEquals(util.ISBN.NESSUNA_CHIAVE, util.ISBN.chiave("X-306-40615-2"));
+        assertTrue(ISBNvalido.isISBN("0-8044-2957-X"));
+
+        assertEquals(new Libro("A", "B", "0-306-40615-2", "G", 2000), new Libro("A", "B", "9780306406157", "G", 2000));
+        assertEquals(new Libro("A", "B", "0-306-40615-2", "G", 2000).hashCode(), new Libro("A", "B", "9780306406157", "G", 2000).hashCode());
+        libreria.aggiungiLibro(new Libro("Uno", "A", "0-306-40615-2", "G", 2000));
+        assertFalse(libreria.aggiungiLibro(new Libro("Due", "A", "978-0-306-40615-7", "G", 2000)));
+        assertTrue(libreria.aggiungiLibro(new Libro("Tre", "A", "codice-interno-1", "G", 2000))); // non ISBN
+        assertTrue(libreria.getLibri().contains(new Libro("", "", "CODICE INTERNO-1", "", 0)));
+        assertTrue(libreria.rimuoviLibro(new Libro("Uno", "A", "9780306406157", "G", 2000)));
+        assertEquals(1, libreria.getLibri().size());
+    }
+
+    @Test
+    @DisplayName("Mappa long→int: stesse risposte di una HashMap con inserimenti e rimozioni casuali")
+    void testMappaLongInt() {
+        java.util.Random random = new java.util.Random(5);
+        MappaLongInt mappa = new MappaLongInt();
+        java.util.Map<Long, Integer> attesa = new java.util.HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            long chiave = 9_780_000_000_000L + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                Integer valore = attesa.remove(chiave);
+                assertEquals(valore == null ? -1 : valore, mappa.rimuovi(chiave, -1));
+            } else {
+                attesa.put(chiave, i);
+                mappa.put(chiave, i);
+            }
+        }
+        assertEquals(attesa.size(), mappa.size());
+        for (long chiave = 9_780_000_000_000L; chiave < 9_780_000_002_000L; chiave++) {
+            assertEquals(attesa.getOrDefault(chiave, -1), mappa.get(chiave, -1));
+        }
+    }
+
     /* ───────────────────────  THREAD‑SAFETY BASE  ─────────────────────── */
 
     @Test
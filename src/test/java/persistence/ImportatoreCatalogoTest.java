@@ -0,0 +1,81 @@
+package persistence;
+
+import model.Libreria;
+import model.Libro;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test dell'importazione di cataloghi CSV e JSON con {@link ImportatoreCatalogo}.
+ */
+class ImportatoreCatalogoTest {
+
+    private Path dir;
+    private Libreria libreria;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws Exception {
+        dir = tempDir;
+        Path json = tempDir.resolve("libreria_test.json");
+        Files.writeString(json, "[]");
+        SingletonJSON.overridePath(json);
+        libreria = new Libreria();
+    }
+
+    @AfterEach
+    void tearDown() {
+        libreria.chiudi();
+    }
+
+    @Test
+    @DisplayName("CSV: righe valide importate a lotti, scartate con il motivo")
+    void testImportaCSV() throws Exception {
+        libreria.aggiungiLibro(new Libro("Esistente", "A", "978-0000000001", "G", 2000));
+        StringBuilder csv = new StringBuilder("titolo;autore;isbn;genere;anno;stato;valutazione\n");
+        for (int i = 2; i < 5_002; i++) {
+            csv.append("\"Titolo; ").append(i).append("\";Autore;").append(String.format("978-%010d", i)).append(";G;1990;;\n");
+        }
+        csv.append("Doppio;A;978-0000000002;G;1990;;\n");          // duplicato nel file
+        csv.append("Già presente;A;978-0000000001;G;1990;;\n");    // già in libreria
+        csv.append("Anno;A;978-0000009999;G;3000;;\n");            // anno fuori intervallo
+        csv.append("Letto;A;978-0000009998;G;1990;LETTO;4\n");
+        csv.append("Voto;A;978-0000009997;G;1990;DA_LEGGERE;4\n"); // valutazione senza lettura
+        Path file = dir.resolve("catalogo.csv");
+        Files.writeString(file, csv);
+
+        List<Integer> avanzamenti = new ArrayList<>();
+        ImportatoreCatalogo importatore = new ImportatoreCatalogo(libreria);
+        importatore.setDimensioneLotto(1_000);
+        importatore.setParallelismo(3);
+        importatore.setAvanzamento((lette, importati, scartati) -> avanzamenti.add(importati));
+        ImportatoreCatalogo.Esito esito = importatore.importa(file);
+
+        assertEquals(5_005, esito.righeLette());
+        assertEquals(5_001, esito.importati());
+        assertEquals(List.of(5_002, 5_003, 5_004, 5_006), esito.scartate().stream().map(ImportatoreCatalogo.RigaScartata::riga).toList());
+        assertEquals(5_002, libreria.getLibri().size());
+        assertTrue(avanzamenti.size() >= 5);
+        assertEquals("Titolo; 2", libreria.cercaLib("Titolo; 2").get(0).getTitolo());
+        assertEquals(4, libreria.filtra(model.FiltroLibri.tutti().conStato(Libro.StatoLettura.LETTO)).get(0).getValutazione());
+    }
+
+    @Test
+    @DisplayName("JSON: stesso formato del file della libreria")
+    void testImportaJSON() throws Exception {
+        Path file = dir.resolve("catalogo.json");
+        Files.writeString(file, """
+                [{"titolo": "Uno", "autore": "A", "isbn": "978-0000000011", "genere": "G", "annoPubblicazione": 1999, "valutazione": 0, "statoLettura": "DA_LEGGERE"},
+                 {"titolo": "", "autore": "A", "isbn": "978-0000000012", "genere": "G", "annoPubblicazione": 1999}]
+                """);
+        ImportatoreCatalogo.Esito esito = new ImportatoreCatalogo(libreria).importa(file);
+        assertEquals(1, esito.importati());
+        assertEquals(2, esito.scartate().get(0).riga());
+        assertEquals(1, libreria.getLibri().size());
+    }
+}
@@ -0,0 +1,76 @@
+package persistence;
+
+import model.Libro;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del raggruppamento dei salvataggi di {@link SalvataggioAsincrono}.
+ */
+class SalvataggioAsincronoTest {
+
+    @Test
+    @DisplayName("Una raffica di modifiche produce una sola scrittura con l'ultima versione")
+    void testRaggruppamento() {
+        List<Libro> libri = new ArrayList<>();
+        AtomicInteger scritture = new AtomicInteger();
+        List<Integer> dimensioniScritte = new ArrayList<>();
+        SalvataggioAsincrono salvataggio = new SalvataggioAsincrono(() -> List.copyOf(libri), lista -> {
+            scritture.incrementAndGet();
+            dimensioniScritte.add(lista.size());
+        });
+        salvataggio.setFinestra(Duration.ofSeconds(10));
+
+        for (int i = 0; i < 50; i++) {
+            libri.add(new Libro("T" + i, "A", "978-00000000" + String.format("%02d", i), "G", 2000));
+            salvataggio.segnaModificata();
+        }
+        salvataggio.flush().join();
+
+        assertEquals(1, scritture.get());
+        assertEquals(List.of(50), dimensioniScritte);
+    }
+
+    @Test
+    @DisplayName("Chiusura: scrive le modifiche in sospeso e rifiuta le successive")
+    void testChiusura() {
+        AtomicInteger scritture = new AtomicInteger();
+        SalvataggioAsincrono salvataggio = new SalvataggioAsincrono(List::of, lista -> scritture.incrementAndGet());
+        salvataggio.setFinestra(Duration.ofSeconds(10));
+        salvataggio.segnaModificata();
+
+        salvataggio.chiudi();
+        assertEquals(1, scritture.get());
+        assertThrows(IllegalStateException.class, salvataggio::segnaModificata);
+    }
+
+    @Test
+    @DisplayName("Una scrittura fallita, anche con un Error, arriva al future e non ferma i salvataggi")
+    void testScritturaFallita() {
+        AtomicInteger scritture = new AtomicInteger();
+        SalvataggioAsincrono salvataggio = new SalvataggioAsincrono(List::of, lista -> {
+            if (scritture.incrementAndGet() == 1) {
+                throw new OutOfMemoryError("simulato");
+            }
+        });
+        salvataggio.setFinestra(Duration.ofSeconds(10));
+
+        CompletableFuture<Void> fallita = salvataggio.segnaModificata();
+        salvataggio.flush();
+        CompletionException errore = assertThrows(CompletionException.class, () -> fallita.orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(OutOfMemoryError.class, errore.getCause());
+
+        salvataggio.segnaModificata();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), salvataggio::chiudi);
+        assertEquals(2, scritture.get());
+    }
+}
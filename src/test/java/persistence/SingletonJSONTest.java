@@ -0,0 +1,157 @@
+package persistence;
+
+import model.Libro;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test del caricamento in streaming di {@link SingletonJSON} e dello snapshot binario.
+ */
+class SingletonJSONTest {
+
+    private Path tempJson;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) {
+        tempJson = tempDir.resolve("libreria_test.json");
+        SingletonJSON.overridePath(tempJson);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SingletonJSON.getInstance().setJournal(false);
+        SingletonJSON.getInstance().setFormatoBinario(false);
+    }
+
+    @Test
+    @DisplayName("Streaming: i libri arrivano uno alla volta alla destinazione")
+    void testLetturaStreaming() {
+        List<Libro> libri = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            libri.add(new Libro("Titolo " + i, "Autore " + i, String.format("978-%010d", i), "Genere", 1900 + i % 100));
+        }
+        SingletonJSON.getInstance().salvaInLibreria(libri);
+
+        List<String> isbnLetti = new ArrayList<>();
+        int letti = SingletonJSON.getInstance().leggiDaLibreria(libro -> isbnLetti.add(libro.getIsbn()));
+
+        assertEquals(500, letti);
+        assertEquals("978-0000000000", isbnLetti.get(0));
+        assertEquals("978-0000000499", isbnLetti.get(499));
+    }
+
+    @Test
+    @DisplayName("Streaming: file vuoto o \"null\" ⇒ libreria vuota")
+    void testFileVuoto() throws Exception {
+        Files.writeString(tempJson, "");
+        assertTrue(SingletonJSON.getInstance().leggiDaLibreria().isEmpty());
+        Files.writeString(tempJson, "null");
+        assertTrue(SingletonJSON.getInstance().leggiDaLibreria().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Streaming: le voci del giornale prevalgono su quelle dello snapshot")
+    void testStreamingConGiornale() {
+        Libro a = new Libro("A", "Aut", "978-0000000001", "G", 2000);
+        Libro b = new Libro("B", "Aut", "978-0000000002", "G", 2001);
+        SingletonJSON json = SingletonJSON.getInstance();
+        json.salvaInLibreria(List.of(a, b));
+
+        json.setJournal(true);
+        json.registraRimozione(a);
+        json.registraModifica(b, new Libro("B2", "Aut", "978-0000000003", "G", 2001));
+
+        List<Libro> letti = json.leggiDaLibreria();
+        assertEquals(1, letti.size());
+        assertEquals("B2", letti.get(0).getTitolo());
+    }
+
+    @Test
+    @DisplayName("Snapshot binario: tutti i campi sopravvivono al salvataggio e alla conversione in JSON")
+    void testSnapshotBinario() throws Exception {
+        Libro letto = new Libro("Però è così", "Àlvaro", "978-0000000001", "Romanzo", 1999);
+        letto.setStatoLettura(Libro.StatoLettura.LETTO);
+        letto.setValutazione(4);
+        Libro senzaGenere = new Libro("Titolo", "Àlvaro", "978-0000000002", null, 2020);
+        senzaGenere.setStatoLettura(Libro.StatoLettura.IN_LETTURA);
+        List<Libro> libri = List.of(letto, senzaGenere);
+
+        Path binario = tempJson.resolveSibling("libreria_test.bin");
+        SnapshotBinario.scrivi(libri, binario);
+        SnapshotBinario snapshot = SnapshotBinario.apri(binario);
+        assertEquals(2, snapshot.size());
+        assertEquals(1999, snapshot.annoPubblicazione(0));
+        assertEquals(4, snapshot.valutazione(0));
+        assertEquals(Libro.StatoLettura.IN_LETTURA, snapshot.statoLettura(1));
+        for (int i = 0; i < libri.size(); i++) {
+            Libro atteso = libri.get(i), letto2 = snapshot.get(i);
+            assertEquals(atteso.getTitolo(), letto2.getTitolo());
+            assertEquals(atteso.getAutore(), letto2.getAutore());
+            assertEquals(atteso.getGenere(), letto2.getGenere());
+            assertEquals(atteso.getStatoLettura(), letto2.getStatoLettura());
+            assertEquals(atteso.getValutazione(), letto2.getValutazione());
+        }
+        assertSame(snapshot.get(0).getAutore(), snapshot.get(1).getAutore()); // stringa della tabella condivisa
+
+        SnapshotBinario.inJSON(binario, tempJson);
+        Path riconvertito = tempJson.resolveSibling("riconvertito.bin");
+        SnapshotBinario.daJSON(tempJson, riconvertito);
+        assertArrayEquals(Files.readAllBytes(binario), Files.readAllBytes(riconvertito));
+    }
+
+    @Test
+    @DisplayName("Snapshot binario: l'avvio legge lo snapshot più recente e applica il giornale")
+    void testLetturaDaSnapshotBinario() {
+        SingletonJSON json = SingletonJSON.getInstance();
+        Libro a = new Libro("A", "Aut", "978-0000000001", "G", 2000);
+        Libro b = new Libro("B", "Aut", "978-0000000002", "G", 2001);
+        json.setFormatoBinario(true);
+        json.salvaInLibreria(List.of(a, b));
+        assertTrue(Files.exists(tempJson.resolveSibling("libreria_test.bin")));
+        assertTrue(Files.exists(tempJson)); // il JSON viene scritto anche con il formato binario
+        assertTrue(json.stimaNumeroLibri() >= 2);
+
+        json.setJournal(true);
+        json.registraRimozione(a);
+
+        List<Libro> letti = json.leggiDaLibreria();
+        assertEquals(1, letti.size());
+        assertEquals("B", letti.get(0).getTitolo());
+    }
+
+    @Test
+    @DisplayName("Snapshot binario: il JSON resta aggiornato e i due formati si convertono l'uno nell'altro")
+    void testSnapshotEntrambiIFormati() throws Exception {
+        SingletonJSON json = SingletonJSON.getInstance();
+        Path binario = tempJson.resolveSibling("libreria_test.bin");
+        Libro a = new Libro("A", "Aut", "978-0000000001", "G", 2000);
+        Libro b = new Libro("B", "Aut", "978-0000000002", "G", 2001);
+
+        json.salvaInLibreria(List.of(a));
+        json.setFormatoBinario(true); // lo snapshot binario viene creato dal JSON
+        assertEquals(1, SnapshotBinario.contaLibri(binario));
+
+        json.salvaInLibreria(List.of(a, b));
+        assertEquals(2, SnapshotBinario.apri(binario).size());
+        // il file resta sostituibile dopo il caricamento
+        json.salvaInLibreria(List.of(b));
+        assertEquals(1, SnapshotBinario.contaLibri(binario));
+        assertTrue(Files.readString(tempJson).contains("978-0000000002"));
+        assertFalse(Files.readString(tempJson).contains("978-0000000001"));
+
+        Files.delete(tempJson); // il JSON mancante viene ricostruito dallo snapshot binario
+        json.setFormatoBinario(false);
+        assertEquals(1, json.leggiDaLibreria().size());
+        assertTrue(Files.readString(tempJson).contains("978-0000000002"));
+
+        json.salvaInLibreria(List.of(a, b)); // solo JSON: lo snapshot binario superato viene eliminato
+        assertFalse(Files.exists(binario));
+        assertEquals(2, json.leggiDaLibreria().size());
+    }
+}